@@ -0,0 +1,57 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.inject.se.SeContainer;
+import jakarta.enterprise.inject.se.SeContainerInitializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Boots the application's CDI container against an in-memory H2 database, the same
+ * setup the tests use. System properties outrank {@code microprofile-config.properties},
+ * so they redirect {@code ds1} away from Oracle.
+ */
+final class BenchmarkContainer {
+
+    private BenchmarkContainer() {
+    }
+
+    /**
+     * Start a container on a fresh H2 database. {@code overrides} are extra config
+     * properties for this run.
+     */
+    static SeContainer start(Map<String, String> overrides) {
+        System.setProperty("server.port", "0");
+        System.setProperty("javax.sql.DataSource.ds1.dataSourceClassName", "org.h2.jdbcx.JdbcDataSource");
+        System.setProperty("javax.sql.DataSource.ds1.dataSource.url",
+                "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        System.setProperty("javax.sql.DataSource.ds1.dataSource.user", "sa");
+        System.setProperty("javax.sql.DataSource.ds1.dataSource.password", "");
+        overrides.forEach(System::setProperty);
+        return SeContainerInitializer.newInstance().initialize();
+    }
+
+    /**
+     * Insert {@code count} expenses spread over the usual categories and methods,
+     * returning their ids.
+     */
+    static String[] seed(OracleJsonService service, int count) {
+        String[] categories = {"FOOD", "TRANSPORT", "SHOPPING", "ENTERTAINMENT", "HEALTH", "EDUCATION"};
+        String[] methods = {"CARD", "CASH", "DEBIT", "CREDIT"};
+        String[] ids = new String[count];
+        List<Expense> batch = new ArrayList<>(500);
+        for (int i = 0; i < count; i++) {
+            Expense expense = Expense.of((i % 1000) + 0.99, methods[i % methods.length],
+                    categories[i % categories.length], "Seeded expense " + i);
+            ids[i] = expense.getId();
+            batch.add(expense);
+            if (batch.size() == 500 || i == count - 1) {
+                service.createAll(batch);
+                batch = new ArrayList<>(500);
+            }
+        }
+        return ids;
+    }
+}
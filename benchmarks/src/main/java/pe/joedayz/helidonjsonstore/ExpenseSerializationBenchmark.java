@@ -0,0 +1,95 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-B (Yasson) against {@link ExpenseJsonCodec}: writing {@link Expense} lists, the
+ * body of every list endpoint, and reading one expense, the body of {@code POST /expenses}.
+ * Both write into the same reused byte stream. Run with {@code -prof gc} to compare
+ * allocation per operation as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseSerializationBenchmark {
+
+    private static final String[] CATEGORIES = {"FOOD", "TRANSPORT", "SHOPPING", "ENTERTAINMENT"};
+    private static final String[] METHODS = {"CARD", "CASH", "DEBIT"};
+
+    @Param({"1", "50", "500", "10000"})
+    public int size;
+
+    private Jsonb jsonb;
+    private List<Expense> expenses;
+    private byte[] jsonBytes;
+    private ByteArrayOutputStream output;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jsonb = JsonbBuilder.create();
+        expenses = new ArrayList<>(size);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < size; i++) {
+            expenses.add(new Expense(UUID.randomUUID().toString(), i + 0.5, METHODS[i % METHODS.length],
+                    CATEGORIES[i % CATEGORIES.length], now.minusMinutes(i), "Serialized expense " + i));
+        }
+        jsonBytes = jsonb.toJson(expenses.get(0)).getBytes(StandardCharsets.UTF_8);
+        output = new ByteArrayOutputStream(size * 256);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public int serializeJsonb() {
+        output.reset();
+        jsonb.toJson(expenses, output);
+        return output.size();
+    }
+
+    @Benchmark
+    public int serializeCodec() throws IOException {
+        output.reset();
+        ExpenseJsonCodec.writeAll(expenses, output);
+        return output.size();
+    }
+
+    @Benchmark
+    public Expense deserializeJsonb() {
+        return jsonb.fromJson(new ByteArrayInputStream(jsonBytes), Expense.class);
+    }
+
+    @Benchmark
+    public Expense deserializeCodec() {
+        return ExpenseJsonCodec.read(jsonBytes);
+    }
+}
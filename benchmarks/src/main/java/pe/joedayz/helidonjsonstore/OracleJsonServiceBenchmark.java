@@ -0,0 +1,89 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.inject.se.SeContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OracleJsonService} operations against a seeded H2 table, with and without
+ * the near cache in front of {@code findById}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OracleJsonServiceBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean nearCache;
+
+    private SeContainer container;
+    private OracleJsonService service;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void start() {
+        container = BenchmarkContainer.start(Map.of("app.cache.expense.enabled", Boolean.toString(nearCache)));
+        service = container.select(OracleJsonService.class).get();
+        ids = BenchmarkContainer.seed(service, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        container.close();
+    }
+
+    @Benchmark
+    public Expense create() {
+        return service.create(Expense.of(12.34, "CARD", "FOOD", "Benchmark insert"));
+    }
+
+    @Benchmark
+    public Object findById() {
+        return service.findById(randomId());
+    }
+
+    @Benchmark
+    public OracleJsonService.WriteResult update() {
+        return service.update(randomId(), Expense.of(56.78, "CASH", "TRANSPORT", "Benchmark update"), null);
+    }
+
+    @Benchmark
+    public ExpensePage findPage() {
+        return service.findPage(null, 50);
+    }
+
+    @Benchmark
+    public ExpensePage findPageByCategory() {
+        return service.findPageByCategory("FOOD", null, 50);
+    }
+
+    @Benchmark
+    public OracleJsonService.ExpenseStatistics statistics() {
+        return service.getStatistics();
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,64 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+/**
+ * Guards {@link AdminOnly} endpoints. A request passes if its security context has the
+ * {@code app.admin.role} role (when an authentication provider is configured) or it
+ * carries {@code Authorization: Bearer <app.admin.token>}. With neither configured the
+ * endpoints refuse everyone.
+ */
+@Provider
+@AdminOnly
+@Priority(Priorities.AUTHORIZATION)
+@ApplicationScoped
+public class AdminAccessFilter implements ContainerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    @Inject
+    @ConfigProperty(name = "app.admin.role", defaultValue = "admin")
+    private String role;
+
+    @Inject
+    @ConfigProperty(name = "app.admin.token")
+    private Optional<String> token;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        SecurityContext security = request.getSecurityContext();
+        if (security != null && security.getUserPrincipal() != null && security.isUserInRole(role)) {
+            return;
+        }
+        if (hasToken(request.getHeaderString(HttpHeaders.AUTHORIZATION))) {
+            return;
+        }
+        request.abortWith(Response.status(Response.Status.FORBIDDEN)
+                .entity(new ErrorResponse("Forbidden", "Operator access required"))
+                .build());
+    }
+
+    private boolean hasToken(String authorization) {
+        if (token.isEmpty() || token.get().isBlank() || authorization == null
+                || !authorization.startsWith(BEARER)) {
+            return false;
+        }
+        // constant time, so the token cannot be guessed byte by byte
+        return MessageDigest.isEqual(token.get().getBytes(StandardCharsets.UTF_8),
+                authorization.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8));
+    }
+}
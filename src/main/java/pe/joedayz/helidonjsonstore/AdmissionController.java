@@ -0,0 +1,172 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Request-level bulkhead in front of the {@code ds1} pool. At most {@link #limit()}
+ * requests run at once; up to {@code queue-capacity} more wait at most
+ * {@code max-wait-ms} for a slot, anything beyond that is shed immediately.
+ * <p>
+ * The limit adapts AIMD-style: each request finishing within {@code target-latency-ms}
+ * while the limit is in use grows it by {@code 1/limit} (about +1 per round of
+ * requests); a slower request or a server error cuts it by {@code backoff-ratio},
+ * at most once per {@code target-latency-ms}.
+ * <p>
+ * The limit never exceeds the pool's {@code maximumPoolSize}: requests beyond it would
+ * only queue for a connection inside the pool, where they add latency without being
+ * counted here.
+ */
+@ApplicationScoped
+public class AdmissionController {
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.initial-limit", defaultValue = "20")
+    private int initialLimit;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.min-limit", defaultValue = "4")
+    private int minLimit;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.max-limit", defaultValue = "200")
+    private int maxLimit;
+
+    @Inject
+    @ConfigProperty(name = "javax.sql.DataSource.ds1.maximumPoolSize", defaultValue = "10")
+    private int poolSize;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.queue-capacity", defaultValue = "100")
+    private int queueCapacity;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.max-wait-ms", defaultValue = "500")
+    private long maxWaitMillis;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.target-latency-ms", defaultValue = "250")
+    private long targetLatencyMillis;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.backoff-ratio", defaultValue = "0.9")
+    private double backoffRatio;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    // written under the lock, volatile for the metric gauges
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int waiting;
+    private long lastDecreaseNanos;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        maxLimit = Math.max(1, Math.min(maxLimit, poolSize));
+        minLimit = Math.min(minLimit, maxLimit);
+        limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        rejected = metricRegistry.counter(Metadata.builder()
+                .withName("admission.rejected")
+                .withDescription("Requests shed because the admission queue was full or the wait timed out")
+                .build());
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("admission.limit")
+                        .withDescription("Current adaptive concurrency limit")
+                        .build(),
+                this, AdmissionController::limit);
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("admission.in-flight")
+                        .withDescription("Requests currently admitted")
+                        .build(),
+                this, AdmissionController::inFlight);
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("admission.queue.depth")
+                        .withDescription("Requests waiting for admission")
+                        .build(),
+                this, AdmissionController::waiting);
+    }
+
+    /**
+     * Take a slot, waiting in the bounded queue if needed.
+     *
+     * @return {@code false} if the request must be shed
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return true;
+            }
+            if (waiting >= queueCapacity) {
+                rejected.inc();
+                return false;
+            }
+            waiting++;
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        rejected.inc();
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inFlight++;
+                return true;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give the slot back and feed the observed latency into the limit.
+     */
+    public void release(long latencyNanos, boolean failed) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= (int) limit;
+            inFlight--;
+            long now = System.nanoTime();
+            if (failed || latencyNanos > TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis)) {
+                if (now - lastDecreaseNanos > TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis)) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (saturated) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long limit() {
+        return (long) limit;
+    }
+
+    public long inFlight() {
+        return inFlight;
+    }
+
+    public long waiting() {
+        return waiting;
+    }
+}
@@ -0,0 +1,109 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.util.List;
+
+/**
+ * Puts every JAX-RS request through {@link AdmissionController} before it is matched
+ * to a resource. Shed requests get 503 with {@code Retry-After}; admitted ones release
+ * their slot on Jersey's {@link RequestEvent.Type#FINISHED} event, which fires once per
+ * request however it ends: written response, unmapped exception, a later filter
+ * throwing, or an asynchronous response that times out or loses its connection.
+ * Paths listed in {@code app.admission.excluded-paths}, and the paths below them,
+ * bypass admission: long-running endpoints would otherwise hold slots for seconds and
+ * feed their latency into the limit meant for ordinary requests.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION - 100)
+@ApplicationScoped
+public class AdmissionFilter implements ContainerRequestFilter, ApplicationEventListener {
+
+    private static final String ADMITTED_AT = AdmissionFilter.class.getName() + ".admittedAt";
+
+    @Inject
+    private AdmissionController admissionController;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.retry-after-seconds", defaultValue = "1")
+    private int retryAfterSeconds;
+
+    @Inject
+    @ConfigProperty(name = "app.admission.excluded-paths", defaultValue = "virtual-threads/info")
+    private List<String> excludedPaths;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        if (!enabled || isExcluded(request.getUriInfo().getPath())) {
+            return;
+        }
+        boolean admitted;
+        try {
+            admitted = admissionController.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            request.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                    .entity(new ErrorResponse("Server busy", "Too many concurrent requests, retry later"))
+                    .build());
+            return;
+        }
+        request.setProperty(ADMITTED_AT, System.nanoTime());
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent event) {
+        return this::onRequestEvent;
+    }
+
+    private void onRequestEvent(RequestEvent event) {
+        if (event.getType() != RequestEvent.Type.FINISHED) {
+            return;
+        }
+        Object admittedAt = event.getContainerRequest().getProperty(ADMITTED_AT);
+        if (admittedAt == null) {
+            return;
+        }
+        event.getContainerRequest().setProperty(ADMITTED_AT, null);
+        ContainerResponse response = event.getContainerResponse();
+        boolean failed = response == null || response.getStatus() >= 500;
+        admissionController.release(System.nanoTime() - (Long) admittedAt, failed);
+    }
+
+    private boolean isExcluded(String path) {
+        String normalized = path.startsWith("/") ? path.substring(1) : path;
+        for (String excluded : excludedPaths) {
+            if (normalized.equals(excluded) || normalized.startsWith(excluded + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,298 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory secondary index on {@link Expense#getAmount()} for {@code /expenses/amount-range}.
+ * <p>
+ * Entries are kept sorted by (amount, id) in fixed-capacity segments, each a pair of
+ * parallel {@code double[]}/{@code String[]} arrays searched with binary search, so
+ * keys are never boxed. Segments are immutable: a write copies the one segment it
+ * touches (splitting it when full) and publishes a new segment table, which lets
+ * range queries run lock-free on whatever table they started with.
+ */
+@ApplicationScoped
+public class AmountIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(AmountIndex.class.getName());
+
+    static final int SEGMENT_CAPACITY = 1024;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    @ConfigProperty(name = "app.amount-index.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    private final Object writeLock = new Object();
+    private volatile Segment[] segments = new Segment[0];
+    private volatile boolean ready;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Entry> entries = new ArrayList<>();
+            oracleJsonService.streamAll(e -> entries.add(new Entry(e.getAmount(), e.getId())));
+            load(entries);
+            ready = true;
+            LOGGER.info(() -> "Amount index built: " + entries.size() + " expenses in " + segments.length + " segments");
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not build amount index, amount ranges use the database", e);
+        }
+    }
+
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ExpenseChange change) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (change.before() != null) {
+                remove(change.before().getAmount(), change.before().getId());
+            }
+            if (change.after() != null) {
+                insert(change.after().getAmount(), change.after().getId());
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ids with {@code min <= amount <= max}, highest amount first (ties by id, descending),
+     * after skipping {@code offset} matches and returning at most {@code limit}.
+     */
+    public List<String> rangeDescending(double min, double max, int offset, int limit) {
+        Segment[] table = segments;
+        List<String> ids = new ArrayList<>(Math.min(limit, 256));
+        int skipped = 0;
+        for (int s = upperSegment(table, max); s >= 0 && ids.size() < limit; s--) {
+            Segment segment = table[s];
+            for (int i = segment.upperBound(max) - 1; i >= 0 && ids.size() < limit; i--) {
+                if (segment.amounts[i] < min) {
+                    return ids;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    ids.add(segment.ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void load(List<Entry> entries) {
+        entries.sort(Comparator.comparingDouble(Entry::amount).thenComparing(Entry::id));
+        int count = (entries.size() + SEGMENT_CAPACITY - 1) / SEGMENT_CAPACITY;
+        Segment[] table = new Segment[count];
+        for (int s = 0; s < count; s++) {
+            int from = s * SEGMENT_CAPACITY;
+            int size = Math.min(SEGMENT_CAPACITY, entries.size() - from);
+            double[] amounts = new double[size];
+            String[] ids = new String[size];
+            for (int i = 0; i < size; i++) {
+                Entry entry = entries.get(from + i);
+                amounts[i] = entry.amount();
+                ids[i] = entry.id();
+            }
+            table[s] = new Segment(amounts, ids);
+        }
+        synchronized (writeLock) {
+            segments = table;
+        }
+    }
+
+    private void insert(double amount, String id) {
+        Segment[] table = segments;
+        if (table.length == 0) {
+            segments = new Segment[] {new Segment(new double[] {amount}, new String[] {id})};
+            return;
+        }
+        int s = Math.max(0, segmentFor(table, amount, id));
+        Segment grown = table[s].with(amount, id);
+        Segment[] next;
+        if (grown.size() > SEGMENT_CAPACITY) {
+            int half = grown.size() / 2;
+            next = new Segment[table.length + 1];
+            System.arraycopy(table, 0, next, 0, s);
+            next[s] = grown.slice(0, half);
+            next[s + 1] = grown.slice(half, grown.size());
+            System.arraycopy(table, s + 1, next, s + 2, table.length - s - 1);
+        } else {
+            next = table.clone();
+            next[s] = grown;
+        }
+        segments = next;
+    }
+
+    private void remove(double amount, String id) {
+        Segment[] table = segments;
+        int s = segmentFor(table, amount, id);
+        if (s < 0) {
+            return;
+        }
+        int index = table[s].indexOf(amount, id);
+        if (index < 0) {
+            return;
+        }
+        Segment shrunk = table[s].without(index);
+        Segment[] next;
+        if (shrunk.size() == 0) {
+            next = new Segment[table.length - 1];
+            System.arraycopy(table, 0, next, 0, s);
+            System.arraycopy(table, s + 1, next, s, table.length - s - 1);
+        } else {
+            next = table.clone();
+            next[s] = shrunk;
+        }
+        segments = next;
+    }
+
+    /**
+     * Last segment whose first key is {@code <=} (amount, id), or -1 if it sorts first.
+     */
+    private static int segmentFor(Segment[] table, double amount, String id) {
+        int low = 0;
+        int high = table.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(table[mid].amounts[0], table[mid].ids[0], amount, id) <= 0) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Last segment whose first amount is {@code <= max}.
+     */
+    private static int upperSegment(Segment[] table, double max) {
+        int low = 0;
+        int high = table.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(table[mid].amounts[0], max) <= 0) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private static int compare(double amountA, String idA, double amountB, String idB) {
+        int byAmount = Double.compare(amountA, amountB);
+        return byAmount != 0 ? byAmount : idA.compareTo(idB);
+    }
+
+    private record Entry(double amount, String id) {
+    }
+
+    /**
+     * Immutable sorted run of (amount, id) pairs.
+     */
+    private static final class Segment {
+        private final double[] amounts;
+        private final String[] ids;
+
+        private Segment(double[] amounts, String[] ids) {
+            this.amounts = amounts;
+            this.ids = ids;
+        }
+
+        private int size() {
+            return amounts.length;
+        }
+
+        /**
+         * Number of entries with amount {@code <= max}.
+         */
+        private int upperBound(double max) {
+            int low = 0;
+            int high = amounts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (Double.compare(amounts[mid], max) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Position of (amount, id), or {@code -(insertion point) - 1} when absent.
+         */
+        private int indexOf(double amount, String id) {
+            int low = 0;
+            int high = amounts.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(amounts[mid], ids[mid], amount, id);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private Segment with(double amount, String id) {
+            int index = indexOf(amount, id);
+            if (index >= 0) {
+                return this;
+            }
+            int at = -index - 1;
+            double[] newAmounts = new double[amounts.length + 1];
+            String[] newIds = new String[ids.length + 1];
+            System.arraycopy(amounts, 0, newAmounts, 0, at);
+            System.arraycopy(ids, 0, newIds, 0, at);
+            newAmounts[at] = amount;
+            newIds[at] = id;
+            System.arraycopy(amounts, at, newAmounts, at + 1, amounts.length - at);
+            System.arraycopy(ids, at, newIds, at + 1, ids.length - at);
+            return new Segment(newAmounts, newIds);
+        }
+
+        private Segment without(int index) {
+            double[] newAmounts = new double[amounts.length - 1];
+            String[] newIds = new String[ids.length - 1];
+            System.arraycopy(amounts, 0, newAmounts, 0, index);
+            System.arraycopy(ids, 0, newIds, 0, index);
+            System.arraycopy(amounts, index + 1, newAmounts, index, amounts.length - index - 1);
+            System.arraycopy(ids, index + 1, newIds, index, ids.length - index - 1);
+            return new Segment(newAmounts, newIds);
+        }
+
+        private Segment slice(int from, int to) {
+            return new Segment(Arrays.copyOfRange(amounts, from, to), Arrays.copyOfRange(ids, from, to));
+        }
+    }
+}
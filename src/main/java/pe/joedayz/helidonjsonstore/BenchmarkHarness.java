@@ -0,0 +1,186 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-app benchmark behind {@code /virtual-threads/benchmark}.
+ * <p>
+ * For every workload and concurrency level it runs {@code warmup} unrecorded rounds,
+ * then {@code trials} measured ones. In a round each of {@code concurrency} virtual
+ * threads opens a JTA transaction, performs {@code operations} calls through
+ * {@link OracleJsonService} and rolls the transaction back, so inserted rows never
+ * reach the table (or the in-memory read models, which only see committed changes).
+ * Every call's latency goes into one {@link LatencyHistogram} per workload and
+ * concurrency; throughput is reported per trial.
+ */
+@ApplicationScoped
+public class BenchmarkHarness {
+
+    private static final String[] CATEGORIES = {"FOOD", "TRANSPORT", "SHOPPING", "ENTERTAINMENT", "HEALTH", "EDUCATION"};
+    private static final int POINT_READ_SAMPLE = 500;
+
+    public enum Workload {
+        INSERT, POINT_READ, RANGE_READ, AGGREGATE
+    }
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    private TransactionManager transactionManager;
+
+    @Inject
+    private ConcurrentIngestionEngine ingestionEngine;
+
+    /**
+     * Highest concurrency allowed: every worker holds a connection for a whole round.
+     */
+    public int maxConcurrency() {
+        return ingestionEngine.maxConcurrentBatches();
+    }
+
+    public List<Result> run(List<Workload> workloads, List<Integer> concurrencyLevels,
+                            int warmup, int trials, int operations) throws InterruptedException {
+        for (int concurrency : concurrencyLevels) {
+            if (concurrency < 1 || concurrency > maxConcurrency()) {
+                throw new IllegalArgumentException("Concurrency must be between 1 and " + maxConcurrency());
+            }
+        }
+        List<String> pointReadIds = oracleJsonService.findPage(null, POINT_READ_SAMPLE).getItems().stream()
+                .map(Expense::getId)
+                .toList();
+
+        List<Result> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Workload workload : workloads) {
+                if (workload == Workload.POINT_READ && pointReadIds.isEmpty()) {
+                    results.add(Result.skipped(workload, "No committed expenses to read"));
+                    continue;
+                }
+                Operation operation = operation(workload, pointReadIds);
+                for (int concurrency : concurrencyLevels) {
+                    for (int i = 0; i < warmup; i++) {
+                        round(executor, operation, concurrency, operations, null);
+                    }
+                    LatencyHistogram latencies = new LatencyHistogram();
+                    List<Double> throughput = new ArrayList<>(trials);
+                    for (int i = 0; i < trials; i++) {
+                        LatencyHistogram trial = new LatencyHistogram();
+                        long start = System.nanoTime();
+                        round(executor, operation, concurrency, operations, trial);
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        throughput.add(Math.round(trial.count() / seconds * 10) / 10.0);
+                        latencies.add(trial);
+                    }
+                    results.add(new Result(workload, concurrency, warmup, trials, operations, throughput,
+                            latencies.summary(), null));
+                }
+            }
+        }
+        return results;
+    }
+
+    private void round(ExecutorService executor, Operation operation, int concurrency, int operations,
+                       LatencyHistogram histogram) throws InterruptedException {
+        List<Future<?>> workers = new ArrayList<>(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            workers.add(executor.submit(() -> {
+                sandboxed(() -> {
+                    for (int op = 0; op < operations; op++) {
+                        long start = System.nanoTime();
+                        operation.run();
+                        if (histogram != null) {
+                            histogram.record(System.nanoTime() - start);
+                        }
+                    }
+                });
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Benchmark worker failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Run {@code body} in a transaction that is always rolled back.
+     */
+    private void sandboxed(Runnable body) throws Exception {
+        transactionManager.begin();
+        try {
+            body.run();
+        } finally {
+            if (transactionManager.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                transactionManager.rollback();
+            }
+        }
+    }
+
+    private Operation operation(Workload workload, List<String> pointReadIds) {
+        return switch (workload) {
+            case INSERT -> () -> oracleJsonService.create(
+                    Expense.of(random().nextDouble(1000), "CARD", randomCategory(), "Benchmark insert"));
+            case POINT_READ -> () -> oracleJsonService.findById(pointReadIds.get(random().nextInt(pointReadIds.size())));
+            case RANGE_READ -> () -> oracleJsonService.findPageByCategory(randomCategory(), null, 50);
+            case AGGREGATE -> oracleJsonService::getStatistics;
+        };
+    }
+
+    private static ThreadLocalRandom random() {
+        return ThreadLocalRandom.current();
+    }
+
+    private static String randomCategory() {
+        return CATEGORIES[random().nextInt(CATEGORIES.length)];
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run();
+    }
+
+    /**
+     * Measurements of one workload at one concurrency level. Throughput is in
+     * operations per second, one value per trial.
+     */
+    public record Result(Workload workload, int concurrency, int warmup, int trials, int operationsPerWorker,
+                         List<Double> throughput, LatencyHistogram.Summary latencyMicros, String skipped) {
+
+        static Result skipped(Workload workload, String reason) {
+            return new Result(workload, 0, 0, 0, 0, List.of(), null, reason);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("workload", workload);
+            if (skipped != null) {
+                map.put("skipped", skipped);
+                return map;
+            }
+            map.put("concurrency", concurrency);
+            map.put("warmup", warmup);
+            map.put("trials", trials);
+            map.put("operationsPerWorker", operationsPerWorker);
+            map.put("throughput", throughput);
+            map.put("latencyMicros", latencyMicros);
+            return map;
+        }
+    }
+}
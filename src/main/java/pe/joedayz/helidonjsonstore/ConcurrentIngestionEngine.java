@@ -0,0 +1,192 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * Inserts a list of expenses in parallel batches. Every batch runs on its own virtual
+ * thread and is written by {@link OracleJsonService#createAll}, i.e. in its own
+ * transaction with one batched flush. A semaphore sized to the {@code ds1} pool
+ * (less {@code app.ingest.reserved-connections} kept for request traffic) caps how many
+ * batches hold a connection at once, so extra threads wait here instead of in the pool.
+ * <p>
+ * A failed batch is rolled back on its own and reported; the other batches still commit.
+ * Gauges {@code ingest.batches.active} and {@code ingest.batches.waiting} show the
+ * executor's batches holding and waiting for a permit; every batch is also recorded
+ * as an {@link IngestionBatchEvent} in JFR.
+ */
+@ApplicationScoped
+public class ConcurrentIngestionEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(ConcurrentIngestionEngine.class.getName());
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @ConfigProperty(name = "javax.sql.DataSource.ds1.maximumPoolSize", defaultValue = "10")
+    private int poolSize;
+
+    @Inject
+    @ConfigProperty(name = "app.ingest.reserved-connections", defaultValue = "2")
+    private int reservedConnections;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private Semaphore connections;
+    private int permits;
+
+    @PostConstruct
+    void init() {
+        permits = Math.max(1, poolSize - reservedConnections);
+        connections = new Semaphore(permits, true);
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("ingest.batches.active")
+                        .withDescription("Ingestion batches holding a connection permit")
+                        .build(),
+                connections, c -> permits - c.availablePermits());
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("ingest.batches.waiting")
+                        .withDescription("Ingestion batches waiting for a connection permit")
+                        .build(),
+                connections, Semaphore::getQueueLength);
+        LOGGER.fine(() -> "Ingestion limited to " + permits + " concurrent batches");
+    }
+
+    @PreDestroy
+    void close() {
+        executor.close();
+    }
+
+    /**
+     * Number of batches that may write at the same time.
+     */
+    public int maxConcurrentBatches() {
+        return permits;
+    }
+
+    /**
+     * Insert {@code expenses} in batches of {@code batchSize} and wait for all of them.
+     * Must not be called inside a transaction: the batches commit independently.
+     */
+    public IngestionReport ingest(List<Expense> expenses, int batchSize) {
+        long start = System.nanoTime();
+        List<List<Expense>> batches = partition(expenses, Math.max(1, batchSize));
+        List<Future<BatchResult>> futures = new ArrayList<>(batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            int index = i;
+            List<Expense> batch = batches.get(i);
+            futures.add(executor.submit(() -> writeBatch(index, batch)));
+        }
+
+        List<BatchResult> failures = new ArrayList<>();
+        int inserted = 0;
+        for (Future<BatchResult> future : futures) {
+            BatchResult result = join(future);
+            if (result.error() == null) {
+                inserted += result.size();
+            } else {
+                failures.add(result);
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new IngestionReport(expenses.size(), inserted, expenses.size() - inserted,
+                batches.size(), permits, elapsedMillis, failures);
+    }
+
+    private BatchResult writeBatch(int index, List<Expense> batch) {
+        IngestionBatchEvent event = new IngestionBatchEvent();
+        event.begin();
+        BatchResult result = write(index, batch, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = index;
+            event.size = batch.size();
+            event.error = result.error();
+            event.commit();
+        }
+        return result;
+    }
+
+    private BatchResult write(int index, List<Expense> batch, IngestionBatchEvent event) {
+        long start = System.nanoTime();
+        try {
+            connections.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new BatchResult(index, batch.size(), 0, "Interrupted while waiting for a connection");
+        }
+        event.permitWait = System.nanoTime() - start;
+        try {
+            oracleJsonService.createAll(batch);
+            return new BatchResult(index, batch.size(), (System.nanoTime() - start) / 1_000_000, null);
+        } catch (RuntimeException e) {
+            return new BatchResult(index, batch.size(), (System.nanoTime() - start) / 1_000_000, describe(e));
+        } finally {
+            connections.release();
+        }
+    }
+
+    private static BatchResult join(Future<BatchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ingestion batches", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ingestion batch failed unexpectedly", e.getCause());
+        }
+    }
+
+    private static String describe(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root == error
+                ? error.getClass().getSimpleName() + ": " + error.getMessage()
+                : error.getClass().getSimpleName() + " caused by " + root.getClass().getSimpleName()
+                        + ": " + root.getMessage();
+    }
+
+    /**
+     * Split {@code list} into consecutive views of at most {@code size} elements.
+     */
+    static <T> List<List<T>> partition(List<T> list, int size) {
+        List<List<T>> partitions = new ArrayList<>((list.size() + size - 1) / size);
+        for (int i = 0; i < list.size(); i += size) {
+            partitions.add(list.subList(i, Math.min(i + size, list.size())));
+        }
+        return partitions;
+    }
+
+    /**
+     * Outcome of one batch; {@code error} is {@code null} when it committed.
+     */
+    public record BatchResult(int index, int size, long elapsedMillis, String error) {
+    }
+
+    /**
+     * Outcome of a whole ingestion. Only failed batches are listed.
+     */
+    public record IngestionReport(int requested, int inserted, int failed, int batches,
+                                  int maxConcurrentBatches, long elapsedMillis,
+                                  List<BatchResult> failures) {
+    }
+}
@@ -0,0 +1,64 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+/**
+ * Gauges for the {@code ds1} HikariCP pool: {@code pool.connections.active},
+ * {@code .idle}, {@code .pending} (threads waiting for a connection) and {@code .total}.
+ * <p>
+ * Hikari is only a runtime dependency, so the values are read from the pool MBean it
+ * registers when {@code registerMbeans} is set; a gauge reports -1 while the MBean is
+ * not available.
+ */
+@ApplicationScoped
+public class ConnectionPoolMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPoolMetrics.class.getName());
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @ConfigProperty(name = "javax.sql.DataSource.ds1.poolName", defaultValue = "ds1")
+    private String poolName;
+
+    private final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    private ObjectName pool;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) throws JMException {
+        pool = new ObjectName("com.zaxxer.hikari:type=Pool (" + poolName + ")");
+        gauge("active", "Connections in use", "ActiveConnections");
+        gauge("idle", "Connections idle in the pool", "IdleConnections");
+        gauge("pending", "Threads waiting for a connection", "ThreadsAwaitingConnection");
+        gauge("total", "Connections open, in use or idle", "TotalConnections");
+    }
+
+    private void gauge(String name, String description, String attribute) {
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("pool.connections." + name)
+                        .withDescription(description + " (" + poolName + ")")
+                        .build(),
+                this, metrics -> metrics.read(attribute));
+    }
+
+    private long read(String attribute) {
+        try {
+            return ((Number) mbeanServer.getAttribute(pool, attribute)).longValue();
+        } catch (JMException e) {
+            LOGGER.finest(() -> "Pool MBean " + pool + " not available: " + e.getMessage());
+            return -1;
+        }
+    }
+}
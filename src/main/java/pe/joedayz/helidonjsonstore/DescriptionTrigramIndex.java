@@ -0,0 +1,335 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process trigram inverted index over {@link Expense#getDescription()} that answers
+ * the case-insensitive "contains" search behind {@code /expenses/search} without a
+ * full table scan.
+ * <p>
+ * Every indexed expense gets an internal document number; each trigram of its
+ * lower-cased description maps to a sorted posting list of those numbers. A query is
+ * answered by intersecting the posting lists of its trigrams, verifying the
+ * candidates against the indexed text and keeping the newest {@code limit} matches
+ * after the cursor. Only those ids are then loaded from the database.
+ * <p>
+ * An update re-indexes the expense under a new, higher number, so posting lists stay
+ * sorted by construction. Freed numbers are reclaimed by compaction once more than
+ * half of them are dead: live documents are renumbered in order, which keeps every
+ * posting list sorted, and the arrays shrink to fit.
+ */
+@ApplicationScoped
+public class DescriptionTrigramIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(DescriptionTrigramIndex.class.getName());
+
+    static final int GRAM = 3;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    @ConfigProperty(name = "app.search.index.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> docById = new HashMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private String[] texts = new String[INITIAL_CAPACITY];
+    private LocalDateTime[] createdAts = new LocalDateTime[INITIAL_CAPACITY];
+    private int nextDoc;
+    private int deadDocs;
+    private volatile boolean ready;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long rows = oracleJsonService.streamAll(this::put);
+            ready = true;
+            LOGGER.info(() -> "Description index built: " + rows + " expenses, " + postings.size() + " trigrams");
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not build description index, search uses the database", e);
+        }
+    }
+
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ExpenseChange change) {
+        if (!enabled) {
+            return;
+        }
+        if (change.after() != null) {
+            put(change.after());
+        } else {
+            remove(change.before().getId());
+        }
+    }
+
+    /**
+     * Whether searches can be served from the index.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether {@code text} is long enough to be looked up; shorter queries have no trigram.
+     */
+    public static boolean isSearchable(String text) {
+        return text != null && text.length() >= GRAM;
+    }
+
+    /**
+     * Ids of the newest {@code limit} expenses after {@code after} whose description
+     * contains {@code text}, ignoring case, newest first.
+     */
+    public Hits search(String text, PageCursor after, int limit) {
+        String query = normalize(text);
+        long[] grams = trigrams(query);
+
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return new Hits(List.of(), null);
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+            // min-heap on (createdAt, id) holding the limit + 1 newest matches seen so far
+            Comparator<Integer> newest = Comparator
+                    .comparing((Integer doc) -> createdAtOf(doc))
+                    .thenComparing(doc -> ids[doc]);
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, newest);
+            PostingList smallest = lists[0];
+            for (int i = 0; i < smallest.size; i++) {
+                int doc = smallest.docs[i];
+                if (!containsAll(lists, doc) || !texts[doc].contains(query) || !isAfter(doc, after)) {
+                    continue;
+                }
+                top.offer(doc);
+                if (top.size() > limit + 1) {
+                    top.poll();
+                }
+            }
+
+            boolean more = top.size() > limit;
+            if (more) {
+                top.poll();
+            }
+            String[] page = new String[top.size()];
+            PageCursor next = null;
+            for (int i = page.length - 1; i >= 0; i--) {
+                int doc = top.poll();
+                page[i] = ids[doc];
+                if (more && i == page.length - 1) {
+                    // the oldest match on this page is where the next one starts
+                    next = new PageCursor(createdAtOf(doc), ids[doc]);
+                }
+            }
+            return new Hits(Arrays.asList(page), next);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Expense expense) {
+        String text = expense.getDescription() != null ? normalize(expense.getDescription()) : "";
+        lock.writeLock().lock();
+        try {
+            Integer previous = docById.remove(expense.getId());
+            if (previous != null) {
+                unindex(previous);
+                compactIfSparse();
+            }
+            int doc = allocate();
+            ids[doc] = expense.getId();
+            texts[doc] = text;
+            createdAts[doc] = expense.getCreatedAt();
+            docById.put(expense.getId(), doc);
+            for (long gram : trigrams(text)) {
+                postings.computeIfAbsent(gram, g -> new PostingList()).append(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docById.remove(id);
+            if (doc != null) {
+                unindex(doc);
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(int doc) {
+        for (long gram : trigrams(texts[doc])) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(doc) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+        ids[doc] = null;
+        texts[doc] = null;
+        createdAts[doc] = null;
+        deadDocs++;
+    }
+
+    /**
+     * Renumber the live documents 0..n-1 in their current order once more than half of
+     * the numbers handed out are dead. Called with the write lock held.
+     */
+    private void compactIfSparse() {
+        if (deadDocs <= nextDoc / 2 || deadDocs <= INITIAL_CAPACITY) {
+            return;
+        }
+        int live = nextDoc - deadDocs;
+        int capacity = Math.max(INITIAL_CAPACITY, live + live / 2);
+        int[] renumbered = new int[nextDoc];
+        String[] newIds = new String[capacity];
+        String[] newTexts = new String[capacity];
+        LocalDateTime[] newCreatedAts = new LocalDateTime[capacity];
+        int to = 0;
+        for (int from = 0; from < nextDoc; from++) {
+            if (ids[from] == null) {
+                continue;
+            }
+            renumbered[from] = to;
+            newIds[to] = ids[from];
+            newTexts[to] = texts[from];
+            newCreatedAts[to] = createdAts[from];
+            docById.put(ids[from], to);
+            to++;
+        }
+        // posting lists only hold live documents, and renumbering keeps their order
+        for (PostingList list : postings.values()) {
+            list.renumber(renumbered);
+        }
+        ids = newIds;
+        texts = newTexts;
+        createdAts = newCreatedAts;
+        nextDoc = to;
+        deadDocs = 0;
+    }
+
+    private int allocate() {
+        if (nextDoc == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            createdAts = Arrays.copyOf(createdAts, capacity);
+        }
+        return nextDoc++;
+    }
+
+    private boolean isAfter(int doc, PageCursor after) {
+        if (after == null) {
+            return true;
+        }
+        int byTime = createdAtOf(doc).compareTo(after.getCreatedAt());
+        return byTime < 0 || (byTime == 0 && ids[doc].compareTo(after.getId()) < 0);
+    }
+
+    private LocalDateTime createdAtOf(int doc) {
+        return createdAts[doc] != null ? createdAts[doc] : LocalDateTime.MIN;
+    }
+
+    private static boolean containsAll(PostingList[] lists, int doc) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(doc)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Distinct trigrams of {@code text}, each packed as three UTF-16 units in a long.
+     */
+    static long[] trigrams(String text) {
+        if (text.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[text.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    /**
+     * Ids of one page of search results, newest first, and the cursor of the next page.
+     */
+    public record Hits(List<String> ids, PageCursor next) {
+    }
+
+    /**
+     * Sorted, growable array of document numbers.
+     */
+    private static final class PostingList {
+        private int[] docs = new int[4];
+        private int size;
+
+        private void append(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        private boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+
+        private void renumber(int[] renumbered) {
+            for (int i = 0; i < size; i++) {
+                docs[i] = renumbered[docs[i]];
+            }
+            if (docs.length > 4 && size < docs.length / 4) {
+                docs = Arrays.copyOf(docs, Math.max(4, size * 2));
+            }
+        }
+
+        private boolean remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
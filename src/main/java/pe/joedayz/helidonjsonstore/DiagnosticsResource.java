@@ -0,0 +1,74 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Admin endpoints over the in-process JFR recording kept by {@link PinningMonitor},
+ * open to operators only (see {@link AdminAccessFilter}).
+ */
+@Path("/diagnostics")
+@AdminOnly
+@Produces(MediaType.APPLICATION_JSON)
+public class DiagnosticsResource {
+
+    @Inject
+    private PinningMonitor pinningMonitor;
+
+    /**
+     * Virtual-thread pinning hotspots, by total pinned time.
+     */
+    @GET
+    @Path("/pinning")
+    public Response getPinning(@QueryParam("limit") @DefaultValue("20") int limit) {
+        if (!pinningMonitor.isEnabled()) {
+            return disabled();
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("pinnedEvents", pinningMonitor.pinnedEvents());
+        response.put("hotspots", pinningMonitor.hotspots(Math.max(1, limit)));
+        return Response.ok(response).build();
+    }
+
+    @DELETE
+    @Path("/pinning")
+    public Response resetPinning() {
+        if (!pinningMonitor.isEnabled()) {
+            return disabled();
+        }
+        pinningMonitor.reset();
+        return Response.noContent().build();
+    }
+
+    /**
+     * Dump the retained recording (pinning, slow persistence calls, ingestion batches)
+     * to the server's {@code .jfr} dump file, for JDK Mission Control or {@code jfr print}.
+     * Each dump replaces the previous one.
+     */
+    @POST
+    @Path("/recording")
+    public Response dumpRecording() {
+        if (!pinningMonitor.isEnabled()) {
+            return disabled();
+        }
+        try {
+            return Response.ok(Map.of("file", pinningMonitor.dump().toString())).build();
+        } catch (IOException e) {
+            return Response.serverError()
+                    .entity(new ErrorResponse("Could not write recording", e.getMessage()))
+                    .build();
+        }
+    }
+
+    private static Response disabled() {
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity(new ErrorResponse("JFR monitoring is disabled", "Set app.jfr.enabled=true"))
+                .build();
+    }
+}
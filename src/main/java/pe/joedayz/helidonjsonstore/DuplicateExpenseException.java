@@ -0,0 +1,18 @@
+package pe.joedayz.helidonjsonstore;
+
+/**
+ * Thrown when an expense is created with an id that already exists.
+ */
+public class DuplicateExpenseException extends RuntimeException {
+
+    private final String id;
+
+    public DuplicateExpenseException(String id, Throwable cause) {
+        super("Expense " + id + " already exists", cause);
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -3,13 +3,22 @@ package pe.joedayz.helidonjsonstore;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", indexes = {
+        // keyset pages: WHERE <filter> ORDER BY created_at DESC, id DESC
+        @Index(name = ExpenseIndexes.CATEGORY_CREATED, columnList = "category, created_at DESC, id DESC"),
+        @Index(name = ExpenseIndexes.METHOD_CREATED, columnList = "method, created_at DESC, id DESC"),
+        @Index(name = ExpenseIndexes.CREATED, columnList = "created_at DESC, id DESC"),
+        // amount-range: WHERE amount BETWEEN ? AND ? ORDER BY amount DESC, id DESC
+        @Index(name = ExpenseIndexes.AMOUNT, columnList = "amount DESC, id DESC")
+})
 public class Expense {
     
     @Id
@@ -30,6 +39,11 @@ public class Expense {
     @Column(name = "description")
     private String description;
     
+    // Optimistic lock counter; the default lets existing rows pick it up on schema update
+    @Version
+    @Column(name = "version", columnDefinition = "NUMERIC(19) DEFAULT 0 NOT NULL")
+    private long version;
+    
     // Default constructor for JPA
     public Expense() {
     }
@@ -110,4 +124,12 @@ public class Expense {
     public void setDescription(String description) {
         this.description = description;
     }
-}
\ No newline at end of file
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
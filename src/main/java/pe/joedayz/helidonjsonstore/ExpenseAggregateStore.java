@@ -0,0 +1,129 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory count/sum per category and per payment method, so statistics and totals
+ * are answered without touching the database.
+ * Built once at startup from a GROUP BY query, then kept current from committed
+ * {@link ExpenseChange} events. Striped adders keep concurrent writers from
+ * contending on a single counter.
+ */
+@ApplicationScoped
+public class ExpenseAggregateStore {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpenseAggregateStore.class.getName());
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    @ConfigProperty(name = "app.aggregates.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    private final Totals overall = new Totals();
+    private final Map<String, Totals> byCategory = new ConcurrentHashMap<>();
+    private final Map<String, Totals> byMethod = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // totals fall back to database queries until the next restart
+            LOGGER.log(Level.WARNING, "Could not build expense aggregates, using database queries", e);
+        }
+    }
+
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ExpenseChange change) {
+        if (!enabled) {
+            return;
+        }
+        if (change.before() != null) {
+            add(change.before(), -1);
+        }
+        if (change.after() != null) {
+            add(change.after(), 1);
+        }
+    }
+
+    /**
+     * Whether the aggregates reflect the table and may be used instead of queries.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public OracleJsonService.ExpenseStatistics statistics() {
+        long count = overall.count.sum();
+        double total = overall.sum.sum();
+        return new OracleJsonService.ExpenseStatistics(count, total, count > 0 ? total / count : 0.0);
+    }
+
+    public double totalByCategory(String category) {
+        Totals totals = byCategory.get(category);
+        return totals != null ? totals.sum.sum() : 0.0;
+    }
+
+    public double totalByMethod(String method) {
+        Totals totals = byMethod.get(method);
+        return totals != null ? totals.sum.sum() : 0.0;
+    }
+
+    private void rebuild() {
+        List<Object[]> rows = oracleJsonService.getTotalsByCategoryAndMethod();
+        for (Object[] row : rows) {
+            String category = (String) row[0];
+            String method = (String) row[1];
+            long count = (Long) row[2];
+            double sum = row[3] != null ? (Double) row[3] : 0.0;
+            overall.add(count, sum);
+            if (category != null) {
+                byCategory.computeIfAbsent(category, k -> new Totals()).add(count, sum);
+            }
+            if (method != null) {
+                byMethod.computeIfAbsent(method, k -> new Totals()).add(count, sum);
+            }
+        }
+        ready = true;
+        LOGGER.info(() -> "Expense aggregates built: " + overall.count.sum() + " rows, "
+                + byCategory.size() + " categories, " + byMethod.size() + " methods");
+    }
+
+    private void add(Expense expense, int sign) {
+        double amount = sign * expense.getAmount();
+        overall.add(sign, amount);
+        if (expense.getCategory() != null) {
+            byCategory.computeIfAbsent(expense.getCategory(), k -> new Totals()).add(sign, amount);
+        }
+        if (expense.getMethod() != null) {
+            byMethod.computeIfAbsent(expense.getMethod(), k -> new Totals()).add(sign, amount);
+        }
+    }
+
+    private static final class Totals {
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private void add(long countDelta, double amountDelta) {
+            count.add(countDelta);
+            sum.add(amountDelta);
+        }
+    }
+}
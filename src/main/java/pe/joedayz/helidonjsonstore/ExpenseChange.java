@@ -0,0 +1,36 @@
+package pe.joedayz.helidonjsonstore;
+
+/**
+ * CDI event fired by {@link OracleJsonService} for every write, carrying detached
+ * copies of the row before and after the change ({@code null} when absent).
+ * In-memory read models observe it with {@code during = AFTER_SUCCESS} so they
+ * only see committed changes.
+ */
+public record ExpenseChange(Expense before, Expense after) {
+
+    public static ExpenseChange created(Expense after) {
+        return new ExpenseChange(null, snapshot(after));
+    }
+
+    public static ExpenseChange updated(Expense before, Expense after) {
+        return new ExpenseChange(snapshot(before), snapshot(after));
+    }
+
+    public static ExpenseChange deleted(Expense before) {
+        return new ExpenseChange(snapshot(before), null);
+    }
+
+    public String id() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    static Expense snapshot(Expense expense) {
+        if (expense == null) {
+            return null;
+        }
+        Expense copy = new Expense(expense.getId(), expense.getAmount(), expense.getMethod(),
+                expense.getCategory(), expense.getCreatedAt(), expense.getDescription());
+        copy.setVersion(expense.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,621 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Columnar in-memory copy of the {@code expenses} table for {@code /expenses/analytics}.
+ * <p>
+ * Each row is spread over primitive columns: category and method as unsigned
+ * {@code short} codes into dictionaries (code 0 is {@code null}, so up to 65535 distinct
+ * values each), the amount as a {@code double} and {@code created_at} as UTC epoch
+ * milliseconds. Writers append under a {@link ReentrantLock} and publish a new
+ * {@link Columns} view; an update tombstones the old row and appends the new one, a
+ * delete only tombstones. The lock is not a monitor, so a committing virtual thread
+ * that compacts under it is not pinned to its carrier. Once
+ * more than half of the rows are tombstones the columns are compacted, and compaction
+ * rebuilds the dictionaries from the live rows. A full dictionary forces a compaction;
+ * if the live rows alone still have too many distinct values the store stops answering
+ * and reloads itself from the table at most every {@code app.analytics.reload-interval-seconds}.
+ * <p>
+ * Aggregations scan a published view on the common fork-join pool, splitting it into
+ * ranges of {@code app.analytics.split-rows}; each range fills its own open-addressing
+ * group table and the tables are merged on the way back up. Built at startup from the
+ * table and kept current from committed {@link ExpenseChange} events.
+ */
+@ApplicationScoped
+public class ExpenseColumnStore {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpenseColumnStore.class.getName());
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CODE = 0xFFFF;
+
+    public enum Dimension {
+        CATEGORY, METHOD, DAY;
+
+        /**
+         * Comma-separated dimension names, case-insensitive; {@code null} or blank groups
+         * nothing (one total row).
+         */
+        public static Set<Dimension> parse(String value) {
+            Set<Dimension> dimensions = EnumSet.noneOf(Dimension.class);
+            if (value == null || value.isBlank()) {
+                return dimensions;
+            }
+            for (String name : value.split(",")) {
+                if (!name.isBlank()) {
+                    try {
+                        dimensions.add(valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown dimension '" + name.trim() + "'", e);
+                    }
+                }
+            }
+            return dimensions;
+        }
+    }
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    @ConfigProperty(name = "app.analytics.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "app.analytics.split-rows", defaultValue = "65536")
+    private int splitRows;
+
+    @Inject
+    @ConfigProperty(name = "app.analytics.reload-interval-seconds", defaultValue = "60")
+    private long reloadIntervalSeconds;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // guarded by writeLock; readers only see them through a published Columns
+    private Dictionary categories = new Dictionary();
+    private Dictionary methods = new Dictionary();
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private short[] categoryCodes = new short[INITIAL_CAPACITY];
+    private short[] methodCodes = new short[INITIAL_CAPACITY];
+    private double[] amounts = new double[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private boolean[] deleted = new boolean[INITIAL_CAPACITY];
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private int size;
+    private int tombstones;
+    // set when the live rows overflowed a dictionary; changes are dropped until a reload
+    private boolean overflowed;
+    private long nextReloadNanos;
+    private volatile Columns columns = Columns.EMPTY;
+    private volatile boolean ready;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        load();
+    }
+
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ExpenseChange change) {
+        if (!enabled) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (overflowed) {
+                if (System.nanoTime() - nextReloadNanos >= 0) {
+                    nextReloadNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(reloadIntervalSeconds);
+                    Thread.ofVirtual().name("expense-column-store-reload").start(this::load);
+                }
+                return;
+            }
+            try {
+                apply(change);
+            } catch (IllegalStateException full) {
+                // values only dead rows used are dropped from the dictionaries
+                compact();
+                try {
+                    apply(change);
+                } catch (IllegalStateException e) {
+                    overflowed = true;
+                    ready = false;
+                    nextReloadNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(reloadIntervalSeconds);
+                    LOGGER.log(Level.WARNING, "Expense column store suspended until reloaded", e);
+                    return;
+                }
+            }
+            if (tombstones > size / 2 && tombstones > INITIAL_CAPACITY) {
+                compact();
+            }
+            publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Build the columns from the table, replacing whatever they held. Changes committed
+     * meanwhile are applied as they arrive, as at startup.
+     */
+    private void load() {
+        writeLock.lock();
+        try {
+            reset();
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            oracleJsonService.streamAll(e -> {
+                writeLock.lock();
+                try {
+                    upsert(e);
+                } finally {
+                    writeLock.unlock();
+                }
+            });
+            writeLock.lock();
+            try {
+                publish();
+            } finally {
+                writeLock.unlock();
+            }
+            ready = true;
+            LOGGER.info(() -> "Expense column store built: " + columns.live() + " rows, "
+                    + columns.categories().length + " categories, " + columns.methods().length + " methods");
+        } catch (IllegalStateException e) {
+            writeLock.lock();
+            try {
+                overflowed = true;
+                nextReloadNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(reloadIntervalSeconds);
+            } finally {
+                writeLock.unlock();
+            }
+            LOGGER.log(Level.WARNING, "Expense column store suspended until reloaded", e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not build expense column store, analytics unavailable", e);
+        }
+    }
+
+    private void apply(ExpenseChange change) {
+        if (change.after() != null) {
+            upsert(change.after());
+        } else {
+            remove(change.before().getId());
+        }
+    }
+
+    private void reset() {
+        categories = new Dictionary();
+        methods = new Dictionary();
+        rowById.clear();
+        categoryCodes = new short[INITIAL_CAPACITY];
+        methodCodes = new short[INITIAL_CAPACITY];
+        amounts = new double[INITIAL_CAPACITY];
+        createdAt = new long[INITIAL_CAPACITY];
+        deleted = new boolean[INITIAL_CAPACITY];
+        ids = new String[INITIAL_CAPACITY];
+        size = 0;
+        tombstones = 0;
+        overflowed = false;
+        ready = false;
+    }
+
+    /**
+     * Whether the columns reflect the table and may answer analytics queries.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Count, sum, average, minimum and maximum of the amount per combination of
+     * {@code groupBy}, over rows matching the optional filters ({@code from} inclusive,
+     * {@code to} exclusive). Groups come ordered by category, method, then day.
+     */
+    public Report aggregate(Set<Dimension> groupBy, String category, String method,
+                            LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        Columns view = columns;
+        Filter filter = new Filter(
+                category != null ? view.code(view.categories(), category) : -1,
+                method != null ? view.code(view.methods(), method) : -1,
+                from != null ? epochMillis(from) : Long.MIN_VALUE,
+                to != null ? epochMillis(to) : Long.MAX_VALUE);
+        List<Group> groups;
+        if (filter.categoryCode() == Filter.NO_MATCH || filter.methodCode() == Filter.NO_MATCH) {
+            groups = List.of();
+        } else {
+            GroupTable table = new Scan(view, filter, groupBy, 0, view.size(), Math.max(1024, splitRows)).invoke();
+            groups = table.groups(view, groupBy);
+        }
+        return new Report(view.live(), groups, (System.nanoTime() - start) / 1_000);
+    }
+
+    private void upsert(Expense expense) {
+        // encode first: a full dictionary must leave the columns untouched
+        short category = categories.encode(expense.getCategory());
+        short method = methods.encode(expense.getMethod());
+        Integer previous = rowById.get(expense.getId());
+        if (previous != null) {
+            markDeleted(previous);
+        }
+        ensureCapacity(size + 1);
+        categoryCodes[size] = category;
+        methodCodes[size] = method;
+        amounts[size] = expense.getAmount();
+        createdAt[size] = expense.getCreatedAt() != null ? epochMillis(expense.getCreatedAt()) : 0L;
+        deleted[size] = false;
+        ids[size] = expense.getId();
+        rowById.put(expense.getId(), size);
+        size++;
+    }
+
+    private void remove(String id) {
+        Integer row = rowById.remove(id);
+        if (row != null) {
+            markDeleted(row);
+        }
+    }
+
+    private void markDeleted(int row) {
+        if (!deleted[row]) {
+            deleted[row] = true;
+            tombstones++;
+        }
+    }
+
+    /**
+     * Copy live rows into fresh arrays, re-encoded against dictionaries holding only
+     * the values they use; views already handed out keep the old arrays and dictionaries.
+     */
+    private void compact() {
+        int live = size - tombstones;
+        int capacity = Math.max(INITIAL_CAPACITY, live + live / 2);
+        String[] oldCategories = categories.values();
+        String[] oldMethods = methods.values();
+        Dictionary liveCategories = new Dictionary();
+        Dictionary liveMethods = new Dictionary();
+        short[] newCategories = new short[capacity];
+        short[] newMethods = new short[capacity];
+        double[] newAmounts = new double[capacity];
+        long[] newCreatedAt = new long[capacity];
+        String[] newIds = new String[capacity];
+        int to = 0;
+        for (int from = 0; from < size; from++) {
+            if (!deleted[from]) {
+                newCategories[to] = liveCategories.encode(decode(oldCategories, categoryCodes[from] & MAX_CODE));
+                newMethods[to] = liveMethods.encode(decode(oldMethods, methodCodes[from] & MAX_CODE));
+                newAmounts[to] = amounts[from];
+                newCreatedAt[to] = createdAt[from];
+                newIds[to] = ids[from];
+                rowById.put(ids[from], to);
+                to++;
+            }
+        }
+        categories = liveCategories;
+        methods = liveMethods;
+        categoryCodes = newCategories;
+        methodCodes = newMethods;
+        amounts = newAmounts;
+        createdAt = newCreatedAt;
+        deleted = new boolean[capacity];
+        ids = newIds;
+        size = to;
+        tombstones = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= amounts.length) {
+            return;
+        }
+        int capacity = Math.max(required, amounts.length + (amounts.length >> 1));
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        methodCodes = Arrays.copyOf(methodCodes, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        createdAt = Arrays.copyOf(createdAt, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+    /**
+     * Rows below {@code size} are never rewritten except for their tombstone, so a view
+     * over the current arrays stays valid while later writes append past it.
+     */
+    private void publish() {
+        columns = new Columns(categoryCodes, methodCodes, amounts, createdAt, deleted, size, size - tombstones,
+                categories.values(), methods.values());
+    }
+
+    private static String decode(String[] dictionary, int code) {
+        return code == 0 ? null : dictionary[code - 1];
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Value-to-code dictionary; code 0 stands for {@code null}.
+     */
+    private static final class Dictionary {
+        private final Map<String, Short> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private short encode(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Short code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (values.size() == MAX_CODE) {
+                throw new IllegalStateException("More than " + MAX_CODE + " distinct values, cannot encode '"
+                        + value + "'");
+            }
+            values.add(value);
+            short added = (short) values.size();
+            codes.put(value, added);
+            return added;
+        }
+
+        /**
+         * Decoded values, index {@code code - 1}.
+         */
+        private String[] values() {
+            return values.toArray(String[]::new);
+        }
+    }
+
+    /**
+     * Immutable view of the first {@code size} rows of the columns.
+     */
+    private record Columns(short[] categoryCodes, short[] methodCodes, double[] amounts, long[] createdAt,
+                           boolean[] deleted, int size, int live, String[] categories, String[] methods) {
+
+        static final Columns EMPTY = new Columns(new short[0], new short[0], new double[0], new long[0],
+                new boolean[0], 0, 0, new String[0], new String[0]);
+
+        int code(String[] dictionary, String value) {
+            for (int i = 0; i < dictionary.length; i++) {
+                if (dictionary[i].equals(value)) {
+                    return i + 1;
+                }
+            }
+            return Filter.NO_MATCH;
+        }
+
+        String decode(String[] dictionary, int code) {
+            return ExpenseColumnStore.decode(dictionary, code);
+        }
+    }
+
+    /**
+     * Scan predicate: codes are -1 for "any", bounds are epoch millis.
+     */
+    private record Filter(int categoryCode, int methodCode, long fromMillis, long toMillis) {
+        static final int NO_MATCH = -2;
+    }
+
+    /**
+     * Fork-join scan of rows {@code [from, to)}, halving the range down to {@code split} rows.
+     */
+    private static final class Scan extends RecursiveTask<GroupTable> {
+        private final Columns view;
+        private final Filter filter;
+        private final Set<Dimension> groupBy;
+        private final int from;
+        private final int to;
+        private final int split;
+
+        private Scan(Columns view, Filter filter, Set<Dimension> groupBy, int from, int to, int split) {
+            this.view = view;
+            this.filter = filter;
+            this.groupBy = groupBy;
+            this.from = from;
+            this.to = to;
+            this.split = split;
+        }
+
+        @Override
+        protected GroupTable compute() {
+            if (to - from <= split) {
+                return scan();
+            }
+            int mid = (from + to) >>> 1;
+            Scan left = new Scan(view, filter, groupBy, from, mid, split);
+            left.fork();
+            GroupTable right = new Scan(view, filter, groupBy, mid, to, split).compute();
+            return left.join().merge(right);
+        }
+
+        private GroupTable scan() {
+            short[] categoryCodes = view.categoryCodes();
+            short[] methodCodes = view.methodCodes();
+            double[] amounts = view.amounts();
+            long[] createdAt = view.createdAt();
+            boolean[] deleted = view.deleted();
+            boolean byCategory = groupBy.contains(Dimension.CATEGORY);
+            boolean byMethod = groupBy.contains(Dimension.METHOD);
+            boolean byDay = groupBy.contains(Dimension.DAY);
+            GroupTable table = new GroupTable();
+            for (int row = from; row < to; row++) {
+                int category = categoryCodes[row] & MAX_CODE;
+                int method = methodCodes[row] & MAX_CODE;
+                long millis = createdAt[row];
+                if (deleted[row]
+                        || (filter.categoryCode() >= 0 && category != filter.categoryCode())
+                        || (filter.methodCode() >= 0 && method != filter.methodCode())
+                        || millis < filter.fromMillis() || millis >= filter.toMillis()) {
+                    continue;
+                }
+                long key = (byCategory ? (long) category << 48 : 0)
+                        | (byMethod ? (long) method << 32 : 0)
+                        | (byDay ? Math.floorDiv(millis, MILLIS_PER_DAY) & 0xFFFF_FFFFL : 0);
+                table.add(key, amounts[row]);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Open-addressing map from packed group key to count/sum/min/max, without boxing.
+     */
+    private static final class GroupTable {
+        private long[] keys = new long[16];
+        private boolean[] used = new boolean[16];
+        private long[] counts = new long[16];
+        private double[] sums = new double[16];
+        private double[] mins = new double[16];
+        private double[] maxs = new double[16];
+        private int entries;
+
+        private void add(long key, double amount) {
+            int slot = slot(key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                mins[slot] = amount;
+                maxs[slot] = amount;
+                if (++entries * 2 > keys.length) {
+                    resize();
+                    slot = slot(key);
+                }
+            } else {
+                mins[slot] = Math.min(mins[slot], amount);
+                maxs[slot] = Math.max(maxs[slot], amount);
+            }
+            counts[slot]++;
+            sums[slot] += amount;
+        }
+
+        private GroupTable merge(GroupTable other) {
+            GroupTable into = entries >= other.entries ? this : other;
+            GroupTable from = into == this ? other : this;
+            for (int i = 0; i < from.keys.length; i++) {
+                if (from.used[i]) {
+                    into.combine(from.keys[i], from.counts[i], from.sums[i], from.mins[i], from.maxs[i]);
+                }
+            }
+            return into;
+        }
+
+        private void combine(long key, long count, double sum, double min, double max) {
+            int slot = slot(key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                counts[slot] = count;
+                sums[slot] = sum;
+                mins[slot] = min;
+                maxs[slot] = max;
+                if (++entries * 2 > keys.length) {
+                    resize();
+                }
+                return;
+            }
+            counts[slot] += count;
+            sums[slot] += sum;
+            mins[slot] = Math.min(mins[slot], min);
+            maxs[slot] = Math.max(maxs[slot], max);
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (mix(key) & mask);
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            long[] oldCounts = counts;
+            double[] oldSums = sums;
+            double[] oldMins = mins;
+            double[] oldMaxs = maxs;
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            counts = new long[capacity];
+            sums = new double[capacity];
+            mins = new double[capacity];
+            maxs = new double[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = slot(oldKeys[i]);
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                    sums[slot] = oldSums[i];
+                    mins[slot] = oldMins[i];
+                    maxs[slot] = oldMaxs[i];
+                }
+            }
+        }
+
+        private List<Group> groups(Columns view, Set<Dimension> groupBy) {
+            List<Group> groups = new ArrayList<>(entries);
+            for (int i = 0; i < keys.length; i++) {
+                if (!used[i]) {
+                    continue;
+                }
+                long key = keys[i];
+                String category = groupBy.contains(Dimension.CATEGORY)
+                        ? view.decode(view.categories(), (int) (key >>> 48) & MAX_CODE) : null;
+                String method = groupBy.contains(Dimension.METHOD)
+                        ? view.decode(view.methods(), (int) (key >>> 32) & MAX_CODE) : null;
+                LocalDate day = groupBy.contains(Dimension.DAY) ? LocalDate.ofEpochDay((int) key) : null;
+                groups.add(new Group(category, method, day, counts[i], sums[i], sums[i] / counts[i],
+                        mins[i], maxs[i]));
+            }
+            groups.sort(Comparator.comparing(Group::category, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Group::method, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Group::day, Comparator.nullsFirst(Comparator.naturalOrder())));
+            return groups;
+        }
+
+        private static long mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 32);
+        }
+    }
+
+    /**
+     * Aggregates of one group; dimensions not grouped by are {@code null}.
+     */
+    public record Group(String category, String method, LocalDate day, long count, double sum, double avg,
+                        double min, double max) {
+    }
+
+    /**
+     * Outcome of an aggregation: rows in the snapshot, groups, and scan time.
+     */
+    public record Report(long rows, List<Group> groups, long elapsedMicros) {
+    }
+}
@@ -0,0 +1,437 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.interceptor.Interceptor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Optional mirror of every expense as a JSON document in {@code expense_documents},
+ * written in the same transaction as the row in {@code expenses}.
+ * <p>
+ * On Oracle the document is a native {@code JSON} column (binary OSON on 23c) and the
+ * category/method finders use function-based indexes on {@code JSON_VALUE}. H2 has
+ * neither, so there the document is text {@code JSON} and category/method are copied
+ * into indexed columns. Documents are encoded once by {@link ExpenseJsonCodec} when
+ * written; reads copy the stored bytes to the response without building an entity.
+ * <p>
+ * Documents of newly created expenses are buffered per transaction and inserted just
+ * before it commits, with one multi-row INSERT per {@value OracleJsonService#ID_CHUNK_SIZE}
+ * rows, so a batch of creates costs no extra round trip per row. Updates and deletes
+ * are written as they happen, after any buffered inserts.
+ * <p>
+ * At startup the table is created if missing and documents that are absent, stale
+ * (by version) or orphaned are brought in line with {@code expenses}.
+ */
+@ApplicationScoped
+public class ExpenseDocumentStore {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpenseDocumentStore.class.getName());
+
+    static final String TABLE = "expense_documents";
+    private static final String PENDING = ExpenseDocumentStore.class.getName() + ".pending";
+    private static final Pattern PARAMETER = Pattern.compile("\\?(\\d)");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    @Named("ds1")
+    private DataSource dataSource;
+
+    @Inject
+    @Named(StatementMonitor.DATA_SOURCE)
+    private DataSource readDataSource;
+
+    @Inject
+    @ConfigProperty(name = "app.document-store.enabled", defaultValue = "false")
+    private boolean enabled;
+
+    private volatile Dialect dialect;
+
+    enum Dialect {
+        ORACLE(List.of(
+                "CREATE TABLE " + TABLE + " (id VARCHAR2(255) PRIMARY KEY, version NUMBER(19) NOT NULL, doc JSON NOT NULL)",
+                "CREATE INDEX idx_expense_docs_category ON " + TABLE
+                        + " (JSON_VALUE(doc, '$.category' RETURNING VARCHAR2(255)), id)",
+                "CREATE INDEX idx_expense_docs_method ON " + TABLE
+                        + " (JSON_VALUE(doc, '$.method' RETURNING VARCHAR2(255)), id)"),
+                "INSERT INTO " + TABLE + " (id, version, doc) VALUES (?1, ?2, JSON(?3))",
+                "UPDATE " + TABLE + " SET version = ?2, doc = JSON(?3) WHERE id = ?1",
+                "JSON_SERIALIZE(doc RETURNING BLOB)",
+                "JSON_VALUE(doc, '$.category' RETURNING VARCHAR2(255))",
+                "JSON_VALUE(doc, '$.method' RETURNING VARCHAR2(255))"),
+        H2(List.of(
+                "CREATE TABLE " + TABLE + " (id VARCHAR(255) PRIMARY KEY, version BIGINT NOT NULL,"
+                        + " category VARCHAR(255), method VARCHAR(255), doc JSON NOT NULL)",
+                "CREATE INDEX idx_expense_docs_category ON " + TABLE + " (category, id)",
+                "CREATE INDEX idx_expense_docs_method ON " + TABLE + " (method, id)"),
+                "INSERT INTO " + TABLE + " (id, version, doc, category, method) VALUES (?1, ?2, ?3 FORMAT JSON, ?4, ?5)",
+                "UPDATE " + TABLE + " SET version = ?2, doc = ?3 FORMAT JSON, category = ?4, method = ?5 WHERE id = ?1",
+                "doc",
+                "category",
+                "method");
+
+        private final List<String> ddl;
+        private final String insert;
+        private final String update;
+        private final String document;
+        private final String category;
+        private final String method;
+
+        Dialect(List<String> ddl, String insert, String update, String document, String category, String method) {
+            this.ddl = ddl;
+            this.insert = insert;
+            this.update = update;
+            this.document = document;
+            this.category = category;
+            this.method = method;
+        }
+
+        /**
+         * Whether category and method are stored in their own columns.
+         */
+        boolean copiesKeys() {
+            return this == H2;
+        }
+
+        int parametersPerRow() {
+            return copiesKeys() ? 5 : 3;
+        }
+
+        /**
+         * One statement inserting {@code rows} documents; row {@code r} binds parameters
+         * {@code r * parametersPerRow() + 1} onwards, in the order of {@link #insert}.
+         */
+        String insertRows(int rows) {
+            int values = insert.indexOf(" VALUES ");
+            String into = insert.substring("INSERT ".length(), values);
+            String row = insert.substring(values + " VALUES ".length());
+            StringBuilder sql = new StringBuilder(this == ORACLE ? "INSERT ALL" : "INSERT " + into + " VALUES");
+            for (int r = 0; r < rows; r++) {
+                int offset = r * parametersPerRow();
+                String numbered = PARAMETER.matcher(row)
+                        .replaceAll(m -> "?" + (offset + Integer.parseInt(m.group(1))));
+                if (this == ORACLE) {
+                    sql.append(' ').append(into).append(" VALUES ").append(numbered);
+                } else {
+                    sql.append(r > 0 ? ", " : " ").append(numbered);
+                }
+            }
+            return this == ORACLE ? sql.append(" SELECT 1 FROM DUAL").toString() : sql.toString();
+        }
+
+        static Optional<Dialect> of(String productName) {
+            String product = productName.toUpperCase(Locale.ROOT);
+            if (product.contains("ORACLE")) {
+                return Optional.of(ORACLE);
+            }
+            return product.contains("H2") ? Optional.of(H2) : Optional.empty();
+        }
+    }
+
+    // after the default-priority startup observers, which bootstrap the persistence unit and its schema
+    void onStartup(@Observes @Priority(Interceptor.Priority.APPLICATION + 1000)
+                   @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            Optional<Dialect> detected = Dialect.of(product);
+            if (detected.isEmpty()) {
+                LOGGER.warning(() -> "Document store not supported on " + product + ", documents disabled");
+                return;
+            }
+            createTableIfMissing(connection, detected.get());
+            int synced = synchronize(connection, detected.get());
+            dialect = detected.get();
+            LOGGER.info(() -> "Expense document store ready (" + dialect + "), " + synced + " documents synchronized");
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not prepare expense document store, documents disabled", e);
+        }
+    }
+
+    /**
+     * Mirror the change inside the writing transaction, so a failed document write
+     * rolls back the row as well.
+     */
+    void onChange(@Observes ExpenseChange change) {
+        Dialect current = dialect;
+        if (current == null) {
+            return;
+        }
+        if (change.before() == null && transactionRegistry.getTransactionKey() != null) {
+            pending().add(change.after());
+            return;
+        }
+        flushPending();
+        if (change.after() == null) {
+            entityManager.createNativeQuery("DELETE FROM " + TABLE + " WHERE id = ?1")
+                    .setParameter(1, change.before().getId())
+                    .executeUpdate();
+            return;
+        }
+        if (change.before() == null || bind(current.update, current, change.after()).executeUpdate() == 0) {
+            bind(current.insert, current, change.after()).executeUpdate();
+        }
+    }
+
+    /**
+     * Documents to insert when the current transaction completes; the first call in a
+     * transaction registers the flush.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Expense> pending() {
+        List<Expense> pending = (List<Expense>) transactionRegistry.getResource(PENDING);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            transactionRegistry.putResource(PENDING, pending);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    flushPending();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                }
+            });
+        }
+        return pending;
+    }
+
+    /**
+     * Insert the current transaction's buffered documents, if any. Runs before commit at
+     * the latest; a failure there rolls the transaction back.
+     */
+    private void flushPending() {
+        if (transactionRegistry.getTransactionKey() == null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Expense> pending = (List<Expense>) transactionRegistry.getResource(PENDING);
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        Dialect current = dialect;
+        for (List<Expense> chunk : ConcurrentIngestionEngine.partition(pending, OracleJsonService.ID_CHUNK_SIZE)) {
+            Query query = entityManager.createNativeQuery(current.insertRows(chunk.size()));
+            for (int r = 0; r < chunk.size(); r++) {
+                bind(query, r * current.parametersPerRow(), current, chunk.get(r));
+            }
+            query.executeUpdate();
+        }
+        pending.clear();
+    }
+
+    /**
+     * Whether documents are kept and may be read.
+     */
+    public boolean isReady() {
+        return dialect != null;
+    }
+
+    /**
+     * The stored document of {@code id}, as UTF-8 JSON.
+     */
+    public Optional<byte[]> find(String id) {
+        String sql = "SELECT " + dialect.document + " FROM " + TABLE + " WHERE id = ?";
+        try (Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, id);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? Optional.of(readAll(rows.getBinaryStream(1))) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read document " + id, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the documents with {@code category} and/or {@code method} (at least one)
+     * and id greater than {@code after}, in id order, as a JSON array. Rows are copied
+     * from the result set to {@code output} one at a time.
+     */
+    public void writeMatching(String category, String method, String after, int limit, OutputStream output)
+            throws IOException {
+        Dialect current = dialect;
+        StringBuilder sql = new StringBuilder("SELECT ").append(current.document).append(" FROM ").append(TABLE)
+                .append(" WHERE 1 = 1");
+        List<String> params = new ArrayList<>(3);
+        if (category != null) {
+            sql.append(" AND ").append(current.category).append(" = ?");
+            params.add(category);
+        }
+        if (method != null) {
+            sql.append(" AND ").append(current.method).append(" = ?");
+            params.add(method);
+        }
+        if (after != null) {
+            sql.append(" AND id > ?");
+            params.add(after);
+        }
+        sql.append(" ORDER BY id FETCH FIRST ").append(limit).append(" ROWS ONLY");
+
+        try (Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setString(i + 1, params.get(i));
+            }
+            output.write('[');
+            try (ResultSet rows = statement.executeQuery()) {
+                boolean first = true;
+                while (rows.next()) {
+                    if (!first) {
+                        output.write(',');
+                    }
+                    first = false;
+                    try (InputStream document = rows.getBinaryStream(1)) {
+                        document.transferTo(output);
+                    }
+                }
+            }
+            output.write(']');
+        } catch (SQLException e) {
+            throw new IOException("Could not read documents", e);
+        }
+    }
+
+    private Query bind(String sql, Dialect current, Expense expense) {
+        return bind(entityManager.createNativeQuery(sql), 0, current, expense);
+    }
+
+    private static Query bind(Query query, int offset, Dialect current, Expense expense) {
+        query.setParameter(offset + 1, expense.getId())
+                .setParameter(offset + 2, expense.getVersion())
+                .setParameter(offset + 3, encode(expense));
+        if (current.copiesKeys()) {
+            query.setParameter(offset + 4, expense.getCategory())
+                    .setParameter(offset + 5, expense.getMethod());
+        }
+        return query;
+    }
+
+    private static String encode(Expense expense) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(256);
+        try {
+            ExpenseJsonCodec.write(expense, json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void createTableIfMissing(Connection connection, Dialect dialect) throws SQLException {
+        try (ResultSet tables = connection.getMetaData()
+                .getTables(null, null, TABLE.toUpperCase(Locale.ROOT), new String[] {"TABLE"})) {
+            if (tables.next()) {
+                return;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : dialect.ddl) {
+                statement.execute(ddl);
+            }
+        }
+        LOGGER.info(() -> "Created table " + TABLE);
+    }
+
+    /**
+     * Drop orphaned documents and rewrite missing or stale ones, one batch per
+     * {@value OracleJsonService#ID_CHUNK_SIZE} ids. Returns the number rewritten.
+     */
+    private int synchronize(Connection connection, Dialect dialect) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM " + TABLE + " d"
+                        + " WHERE NOT EXISTS (SELECT 1 FROM expenses e WHERE e.id = d.id)");
+            }
+            List<String> stale = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT e.id FROM expenses e"
+                         + " LEFT JOIN " + TABLE + " d ON d.id = e.id"
+                         + " WHERE d.id IS NULL OR d.version <> e.version")) {
+                while (rows.next()) {
+                    stale.add(rows.getString(1));
+                }
+            }
+            connection.commit();
+            for (List<String> chunk : ConcurrentIngestionEngine.partition(stale, OracleJsonService.ID_CHUNK_SIZE)) {
+                rewrite(connection, dialect, oracleJsonService.findByIds(chunk));
+                connection.commit();
+            }
+            return stale.size();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void rewrite(Connection connection, Dialect dialect, List<Expense> expenses) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + TABLE + " WHERE id = ?");
+             PreparedStatement insert = connection.prepareStatement(dialect.insert.replaceAll("\\?\\d", "?"))) {
+            for (Expense expense : expenses) {
+                delete.setString(1, expense.getId());
+                delete.addBatch();
+                insert.setString(1, expense.getId());
+                insert.setLong(2, expense.getVersion());
+                insert.setString(3, encode(expense));
+                if (dialect.copiesKeys()) {
+                    insert.setString(4, expense.getCategory());
+                    insert.setString(5, expense.getMethod());
+                }
+                insert.addBatch();
+            }
+            delete.executeBatch();
+            insert.executeBatch();
+        }
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        try (input) {
+            return input.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes JSON that is already encoded, such as documents read from
+ * {@link ExpenseDocumentStore}, to the response as it is. Being typed to {@link Body}
+ * keeps JSON-B, which accepts any type for {@code application/json}, from encoding the
+ * bytes a second time.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@ApplicationScoped
+public class ExpenseDocumentWriter implements MessageBodyWriter<ExpenseDocumentWriter.Body> {
+
+    /**
+     * Pre-encoded JSON entity.
+     */
+    @FunctionalInterface
+    public interface Body {
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return Body.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(Body body, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        body.writeTo(entityStream);
+    }
+}
@@ -0,0 +1,72 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes the whole expenses table as newline-delimited JSON.
+ * Each row is serialized and written as soon as it is read, so memory use is
+ * independent of table size and the client sees the first line immediately.
+ * Rows are encoded with {@link ExpenseJsonCodec}.
+ */
+@ApplicationScoped
+public class ExpenseExporter {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final byte NEWLINE = '\n';
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    @ConfigProperty(name = "app.export.flush-every", defaultValue = "500")
+    private int flushEvery;
+
+    /**
+     * Export all expenses to {@code output}. Returns the number of rows written.
+     */
+    public long export(OutputStream output) throws IOException {
+        try {
+            LineWriter writer = new LineWriter(output);
+            long written = oracleJsonService.streamAll(writer);
+            writer.encoder.flush();
+            return written;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class LineWriter implements Consumer<Expense> {
+        private final OutputStream output;
+        private final ExpenseJsonCodec.Encoder encoder;
+        private long written;
+
+        private LineWriter(OutputStream output) {
+            this.output = output;
+            this.encoder = ExpenseJsonCodec.encoder(output);
+        }
+
+        @Override
+        public void accept(Expense expense) {
+            try {
+                encoder.write(expense);
+                encoder.write(NEWLINE);
+                written++;
+                // flush the first row right away, then in chunks
+                if (written == 1 || written % Math.max(1, flushEvery) == 0) {
+                    encoder.flush();
+                    output.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package pe.joedayz.helidonjsonstore;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Expense properties selectable with {@code ?fields=} on the list endpoints.
+ * {@link #ID} and {@link #CREATED_AT} are always selected: they form the page cursor.
+ */
+public enum ExpenseField {
+    ID("id"),
+    AMOUNT("amount"),
+    METHOD("method"),
+    CATEGORY("category"),
+    CREATED_AT("createdAt"),
+    DESCRIPTION("description"),
+    VERSION("version");
+
+    public static final Set<ExpenseField> ALL = Collections.unmodifiableSet(EnumSet.allOf(ExpenseField.class));
+
+    private final String property;
+
+    ExpenseField(String property) {
+        this.property = property;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    /**
+     * Parse a comma-separated list of property names; {@code null} or blank selects all.
+     *
+     * @throws IllegalArgumentException for an unknown property
+     */
+    public static Set<ExpenseField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        EnumSet<ExpenseField> selected = EnumSet.of(ID, CREATED_AT);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                selected.add(byProperty(trimmed));
+            }
+        }
+        return selected;
+    }
+
+    private static ExpenseField byProperty(String property) {
+        for (ExpenseField field : values()) {
+            if (field.property.equalsIgnoreCase(property)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field '" + property + "'");
+    }
+}
@@ -0,0 +1,16 @@
+package pe.joedayz.helidonjsonstore;
+
+/**
+ * Names of the secondary indexes declared on {@link Expense}, shared with
+ * {@link QueryPlanCheck} so the plan assertions cannot drift from the mapping.
+ */
+final class ExpenseIndexes {
+
+    static final String CATEGORY_CREATED = "idx_expenses_category_created";
+    static final String METHOD_CREATED = "idx_expenses_method_created";
+    static final String CREATED = "idx_expenses_created";
+    static final String AMOUNT = "idx_expenses_amount";
+
+    private ExpenseIndexes() {
+    }
+}
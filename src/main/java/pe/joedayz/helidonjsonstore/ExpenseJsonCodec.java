@@ -0,0 +1,584 @@
+package pe.joedayz.helidonjsonstore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hand-written JSON encoding of {@link Expense}, producing the same document as the
+ * JSON-B defaults: properties in lexicographic order, {@code null} properties omitted,
+ * ISO-8601 timestamps and {@link Double#toString(double)} amounts.
+ * <p>
+ * Writing goes through a byte buffer straight to the output stream: property names
+ * are pre-encoded, category and method values are cached as encoded bytes (they come
+ * from small vocabularies), and timestamps are formatted digit by digit. Reading
+ * scans the bytes once and sets the fields directly, skipping unknown properties.
+ */
+public final class ExpenseJsonCodec {
+
+    private static final byte[] AMOUNT = ascii("{\"amount\":");
+    private static final byte[] CATEGORY = ascii(",\"category\":");
+    private static final byte[] CREATED_AT = ascii(",\"createdAt\":");
+    private static final byte[] DESCRIPTION = ascii(",\"description\":");
+    private static final byte[] ID = ascii(",\"id\":");
+    private static final byte[] METHOD = ascii(",\"method\":");
+    private static final byte[] VERSION = ascii(",\"version\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private static final int MAX_CACHED_VALUES = 1024;
+    private static final Map<String, byte[]> ENCODED_VALUES = new ConcurrentHashMap<>();
+
+    private ExpenseJsonCodec() {
+    }
+
+    private static final int SINGLE_BUFFER_SIZE = 1024;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    public static void write(Expense expense, OutputStream output) throws IOException {
+        Encoder encoder = new Encoder(output, SINGLE_BUFFER_SIZE);
+        encoder.write(expense);
+        encoder.flush();
+    }
+
+    public static void writeAll(Collection<Expense> expenses, OutputStream output) throws IOException {
+        Encoder encoder = new Encoder(output, STREAM_BUFFER_SIZE);
+        encoder.write((byte) '[');
+        boolean first = true;
+        for (Expense expense : expenses) {
+            if (!first) {
+                encoder.write((byte) ',');
+            }
+            first = false;
+            if (expense == null) {
+                encoder.write(NULL);
+            } else {
+                encoder.write(expense);
+            }
+        }
+        encoder.write((byte) ']');
+        encoder.flush();
+    }
+
+    /**
+     * Write projections as a JSON array; unselected ({@code null}) properties are omitted.
+     */
+    public static void writeViews(Collection<ExpenseView> views, OutputStream output) throws IOException {
+        Encoder encoder = new Encoder(output, STREAM_BUFFER_SIZE);
+        encoder.write((byte) '[');
+        boolean first = true;
+        for (ExpenseView view : views) {
+            if (!first) {
+                encoder.write((byte) ',');
+            }
+            first = false;
+            encoder.write(view);
+        }
+        encoder.write((byte) ']');
+        encoder.flush();
+    }
+
+    /**
+     * Encoder that keeps its buffer across objects, for writing many expenses to one
+     * stream (e.g. one per line). Bytes reach the stream when the buffer fills up or on
+     * {@link Encoder#flush()}.
+     */
+    public static Encoder encoder(OutputStream output) {
+        return new Encoder(output, STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Parse one expense object.
+     *
+     * @return {@code null} for an empty or {@code null} body
+     * @throws IllegalArgumentException if the JSON is malformed or a property has the wrong type
+     */
+    public static Expense read(byte[] json) {
+        return new Parser(json).expense();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static final class Encoder {
+        private final OutputStream output;
+        private final byte[] bytes;
+        private int position;
+
+        private Encoder(OutputStream output, int bufferSize) {
+            this.output = output;
+            this.bytes = new byte[bufferSize];
+        }
+
+        public void write(Expense expense) throws IOException {
+            write(AMOUNT);
+            amount(expense.getAmount());
+            if (expense.getCategory() != null) {
+                write(CATEGORY);
+                cachedString(expense.getCategory());
+            }
+            if (expense.getCreatedAt() != null) {
+                write(CREATED_AT);
+                timestamp(expense.getCreatedAt());
+            }
+            if (expense.getDescription() != null) {
+                write(DESCRIPTION);
+                string(expense.getDescription());
+            }
+            if (expense.getId() != null) {
+                write(ID);
+                string(expense.getId());
+            }
+            if (expense.getMethod() != null) {
+                write(METHOD);
+                cachedString(expense.getMethod());
+            }
+            write(VERSION);
+            number(expense.getVersion());
+            write((byte) '}');
+        }
+
+        public void write(ExpenseView view) throws IOException {
+            // the same properties as for Expense, each one optional
+            byte separator = '{';
+            if (view.amount() != null) {
+                separator = property(separator, AMOUNT);
+                amount(view.amount());
+            }
+            if (view.category() != null) {
+                separator = property(separator, CATEGORY);
+                cachedString(view.category());
+            }
+            if (view.createdAt() != null) {
+                separator = property(separator, CREATED_AT);
+                timestamp(view.createdAt());
+            }
+            if (view.description() != null) {
+                separator = property(separator, DESCRIPTION);
+                string(view.description());
+            }
+            if (view.id() != null) {
+                separator = property(separator, ID);
+                string(view.id());
+            }
+            if (view.method() != null) {
+                separator = property(separator, METHOD);
+                cachedString(view.method());
+            }
+            if (view.version() != null) {
+                separator = property(separator, VERSION);
+                number(view.version());
+            }
+            if (separator == '{') {
+                write(separator);
+            }
+            write((byte) '}');
+        }
+
+        /**
+         * Write a pre-encoded {@code ,"name":} with {@code separator} in place of its comma.
+         */
+        private byte property(byte separator, byte[] name) throws IOException {
+            ensure(name.length);
+            bytes[position++] = separator;
+            System.arraycopy(name, 1, bytes, position, name.length - 1);
+            position += name.length - 1;
+            return ',';
+        }
+
+        private void amount(double amount) throws IOException {
+            if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+                throw new IllegalArgumentException("Amount is not a JSON number: " + amount);
+            }
+            String text = Double.toString(amount);
+            ensure(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                bytes[position++] = (byte) text.charAt(i);
+            }
+        }
+
+        private void number(long value) throws IOException {
+            if (value >= 0 && value < 10) {
+                write((byte) ('0' + value));
+                return;
+            }
+            String text = Long.toString(value);
+            ensure(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                bytes[position++] = (byte) text.charAt(i);
+            }
+        }
+
+        /**
+         * {@code yyyy-MM-ddTHH:mm:ss[.fraction]} as {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}
+         * prints it: the fraction only as long as needed, none when zero.
+         */
+        private void timestamp(LocalDateTime time) throws IOException {
+            int year = time.getYear();
+            if (year < 0 || year > 9999) {
+                string(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(time));
+                return;
+            }
+            ensure(32);
+            bytes[position++] = '"';
+            digits(year / 100);
+            digits(year % 100);
+            bytes[position++] = '-';
+            digits(time.getMonthValue());
+            bytes[position++] = '-';
+            digits(time.getDayOfMonth());
+            bytes[position++] = 'T';
+            digits(time.getHour());
+            bytes[position++] = ':';
+            digits(time.getMinute());
+            bytes[position++] = ':';
+            digits(time.getSecond());
+            int nano = time.getNano();
+            if (nano != 0) {
+                bytes[position++] = '.';
+                int divisor = 100_000_000;
+                while (nano != 0) {
+                    bytes[position++] = (byte) ('0' + nano / divisor);
+                    nano %= divisor;
+                    divisor /= 10;
+                }
+            }
+            bytes[position++] = '"';
+        }
+
+        private void digits(int twoDigits) {
+            bytes[position++] = (byte) ('0' + twoDigits / 10);
+            bytes[position++] = (byte) ('0' + twoDigits % 10);
+        }
+
+        private void cachedString(String value) throws IOException {
+            byte[] encoded = ENCODED_VALUES.get(value);
+            if (encoded == null) {
+                encoded = encode(value);
+                if (ENCODED_VALUES.size() < MAX_CACHED_VALUES) {
+                    ENCODED_VALUES.putIfAbsent(value, encoded);
+                }
+            }
+            write(encoded);
+        }
+
+        private void string(String value) throws IOException {
+            // at most 6 bytes per char (\\u00XX), flushed per chunk for long strings
+            write((byte) '"');
+            for (int i = 0; i < value.length(); i++) {
+                ensure(6);
+                char c = value.charAt(i);
+                if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                    bytes[position++] = (byte) c;
+                } else if (c < 0x80) {
+                    escape(c);
+                } else if (c < 0x800) {
+                    bytes[position++] = (byte) (0xC0 | c >> 6);
+                    bytes[position++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate, encoded as String.getBytes(UTF_8) does
+                    bytes[position++] = '?';
+                } else {
+                    bytes[position++] = (byte) (0xE0 | c >> 12);
+                    bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            write((byte) '"');
+        }
+
+        private void escape(char c) {
+            bytes[position++] = '\\';
+            switch (c) {
+                case '"' -> bytes[position++] = '"';
+                case '\\' -> bytes[position++] = '\\';
+                case '\b' -> bytes[position++] = 'b';
+                case '\f' -> bytes[position++] = 'f';
+                case '\n' -> bytes[position++] = 'n';
+                case '\r' -> bytes[position++] = 'r';
+                case '\t' -> bytes[position++] = 't';
+                default -> {
+                    bytes[position++] = 'u';
+                    bytes[position++] = '0';
+                    bytes[position++] = '0';
+                    bytes[position++] = HEX[c >> 4];
+                    bytes[position++] = HEX[c & 0xF];
+                }
+            }
+        }
+
+        private static byte[] encode(String value) throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(value.length() + 2);
+            Encoder encoder = new Encoder(output, 64);
+            encoder.string(value);
+            encoder.flush();
+            return output.toByteArray();
+        }
+
+        public void write(byte value) throws IOException {
+            ensure(1);
+            bytes[position++] = value;
+        }
+
+        private void write(byte[] value) throws IOException {
+            if (value.length > bytes.length) {
+                flushBuffer();
+                output.write(value);
+                return;
+            }
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, position, value.length);
+            position += value.length;
+        }
+
+        private void ensure(int length) throws IOException {
+            if (position + length > bytes.length) {
+                flushBuffer();
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            output.write(bytes, 0, position);
+            position = 0;
+        }
+
+        /**
+         * Hand the buffered bytes to the stream (without flushing the stream itself).
+         */
+        public void flush() throws IOException {
+            flushBuffer();
+        }
+    }
+
+    private static final class Parser {
+        private final byte[] json;
+        private int position;
+
+        private Parser(byte[] json) {
+            this.json = json;
+        }
+
+        private Expense expense() {
+            skipWhitespace();
+            if (position == json.length || literal("null")) {
+                return null;
+            }
+            Expense expense = new Expense();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return end(expense);
+            }
+            do {
+                skipWhitespace();
+                String name = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                switch (name) {
+                    case "id" -> expense.setId(nullableString());
+                    case "amount" -> {
+                        if (!literal("null")) {
+                            expense.setAmount(number());
+                        }
+                    }
+                    case "method" -> expense.setMethod(nullableString());
+                    case "category" -> expense.setCategory(nullableString());
+                    case "description" -> expense.setDescription(nullableString());
+                    case "createdAt" -> expense.setCreatedAt(timestamp(nullableString()));
+                    case "version" -> {
+                        if (!literal("null")) {
+                            expense.setVersion((long) number());
+                        }
+                    }
+                    default -> skipValue();
+                }
+                skipWhitespace();
+            } while (next() == ',');
+            position--;
+            expect('}');
+            return end(expense);
+        }
+
+        private Expense end(Expense expense) {
+            skipWhitespace();
+            if (position != json.length) {
+                throw error("Unexpected content after the object");
+            }
+            return expense;
+        }
+
+        private static LocalDateTime timestamp(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return LocalDateTime.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid createdAt: " + value, e);
+            }
+        }
+
+        private String nullableString() {
+            return literal("null") ? null : string();
+        }
+
+        private String string() {
+            expect('"');
+            int start = position;
+            // fast path: no escapes, decode the slice in one go
+            while (position < json.length && json[position] != '"' && json[position] != '\\') {
+                position++;
+            }
+            if (position < json.length && json[position] == '"') {
+                String value = new String(json, start, position - start, StandardCharsets.UTF_8);
+                position++;
+                return value;
+            }
+            StringBuilder value = new StringBuilder(new String(json, start, position - start, StandardCharsets.UTF_8));
+            while (true) {
+                int run = position;
+                while (position < json.length && json[position] != '"' && json[position] != '\\') {
+                    position++;
+                }
+                value.append(new String(json, run, position - run, StandardCharsets.UTF_8));
+                char c = (char) next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                char escaped = (char) next();
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > json.length) {
+                            throw error("Truncated unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(
+                                    new String(json, position, 4, StandardCharsets.US_ASCII), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        position += 4;
+                    }
+                    default -> throw error("Invalid escape \\" + escaped);
+                }
+            }
+        }
+
+        private double number() {
+            int start = position;
+            while (position < json.length && isNumberChar(json[position])) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Expected a number");
+            }
+            try {
+                return Double.parseDouble(new String(json, start, position - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        private static boolean isNumberChar(byte c) {
+            return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+        }
+
+        private void skipValue() {
+            switch (peek()) {
+                case '"' -> string();
+                case '{' -> skipNested('{', '}');
+                case '[' -> skipNested('[', ']');
+                default -> {
+                    if (!literal("null") && !literal("true") && !literal("false")) {
+                        number();
+                    }
+                }
+            }
+        }
+
+        private void skipNested(char open, char close) {
+            expect(open);
+            int depth = 1;
+            while (depth > 0) {
+                byte c = (byte) peek();
+                if (c == '"') {
+                    string();
+                    continue;
+                }
+                position++;
+                if (c == open) {
+                    depth++;
+                } else if (c == close) {
+                    depth--;
+                }
+            }
+        }
+
+        private boolean literal(String literal) {
+            if (position + literal.length() > json.length) {
+                return false;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (json[position + i] != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            position += literal.length();
+            return true;
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length
+                    && (json[position] == ' ' || json[position] == '\n' || json[position] == '\r' || json[position] == '\t')) {
+                position++;
+            }
+        }
+
+        private int peek() {
+            if (position >= json.length) {
+                throw error("Unexpected end of input");
+            }
+            return json[position];
+        }
+
+        private int next() {
+            int c = peek();
+            position++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                position--;
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + position);
+        }
+    }
+}
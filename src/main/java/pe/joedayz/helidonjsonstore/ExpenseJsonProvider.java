@@ -0,0 +1,89 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * JAX-RS entity provider that reads and writes {@link Expense}, and writes collections
+ * of {@link Expense} or {@link ExpenseView}, with {@link ExpenseJsonCodec} instead of
+ * JSON-B. A collection is only recognized through its generic type, so resources return
+ * {@code List<Expense>} or a {@code GenericEntity}; everything else still goes through JSON-B.
+ * Disabled by {@code app.json.codec.enabled=false}.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@ApplicationScoped
+public class ExpenseJsonProvider implements MessageBodyWriter<Object>, MessageBodyReader<Expense> {
+
+    @Inject
+    @ConfigProperty(name = "app.json.codec.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return enabled && (type == Expense.class || elementType(type, genericType) != null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        if (entity instanceof Expense expense) {
+            ExpenseJsonCodec.write(expense, entityStream);
+        } else if (elementType(type, genericType) == ExpenseView.class) {
+            ExpenseJsonCodec.writeViews((Collection<ExpenseView>) entity, entityStream);
+        } else {
+            ExpenseJsonCodec.writeAll((Collection<Expense>) entity, entityStream);
+        }
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return enabled && type == Expense.class;
+    }
+
+    @Override
+    public Expense readFrom(Class<Expense> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                            MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+            throws IOException {
+        try {
+            return ExpenseJsonCodec.read(entityStream.readAllBytes());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Malformed expense: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@code Expense} or {@code ExpenseView} for a collection of them, {@code null} otherwise.
+     */
+    private static Type elementType(Class<?> type, Type genericType) {
+        if (Collection.class.isAssignableFrom(type)
+                && genericType instanceof ParameterizedType parameterized
+                && parameterized.getActualTypeArguments().length == 1) {
+            Type element = parameterized.getActualTypeArguments()[0];
+            if (element == Expense.class || element == ExpenseView.class) {
+                return element;
+            }
+        }
+        return null;
+    }
+}
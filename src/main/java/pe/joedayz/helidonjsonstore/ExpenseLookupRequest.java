@@ -0,0 +1,25 @@
+package pe.joedayz.helidonjsonstore;
+
+import java.util.List;
+
+/**
+ * Request body of {@code POST /expenses/lookup}.
+ */
+public class ExpenseLookupRequest {
+    private List<String> ids;
+
+    public ExpenseLookupRequest() {
+    }
+
+    public ExpenseLookupRequest(List<String> ids) {
+        this.ids = ids;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+}
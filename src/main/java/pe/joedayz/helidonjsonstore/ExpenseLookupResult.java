@@ -0,0 +1,51 @@
+package pe.joedayz.helidonjsonstore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a multi-get: one entry per requested id, in request order, with
+ * {@code null} where the id does not exist. The missing ids are also listed.
+ */
+public class ExpenseLookupResult {
+    private List<Expense> expenses;
+    private List<String> missing;
+
+    public ExpenseLookupResult() {
+    }
+
+    public ExpenseLookupResult(List<Expense> expenses, List<String> missing) {
+        this.expenses = expenses;
+        this.missing = missing;
+    }
+
+    static ExpenseLookupResult of(List<String> ids, Map<String, Expense> found) {
+        List<Expense> expenses = new ArrayList<>(ids.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Expense expense = found.get(id);
+            expenses.add(expense);
+            if (expense == null) {
+                missing.add(id);
+            }
+        }
+        return new ExpenseLookupResult(expenses, missing);
+    }
+
+    public List<Expense> getExpenses() {
+        return expenses;
+    }
+
+    public void setExpenses(List<Expense> expenses) {
+        this.expenses = expenses;
+    }
+
+    public List<String> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<String> missing) {
+        this.missing = missing;
+    }
+}
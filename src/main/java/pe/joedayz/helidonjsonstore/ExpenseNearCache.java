@@ -0,0 +1,284 @@
+package pe.joedayz.helidonjsonstore;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, application-wide cache in front of {@link OracleJsonService#findById}.
+ * Caffeine's W-TinyLFU policy keeps frequently read expenses resident, entries are
+ * weighed by their approximate heap size and expire after a fixed TTL.
+ * <p>
+ * Entries are invalidated when a write is made (inside its transaction) and again
+ * once that transaction completes, so a read racing with the write cannot leave
+ * the pre-commit value behind.
+ * <p>
+ * Misses are loaded on the caller's thread, outside Caffeine's per-key compute, so
+ * a virtual thread blocked on the database never holds a cache lock and is never
+ * pinned to its carrier. A loaded value is only cached if no invalidation happened
+ * while it was being read.
+ */
+@ApplicationScoped
+public class ExpenseNearCache {
+
+    // object headers, LocalDateTime, the double and the version
+    private static final int FIXED_WEIGHT = 128;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @ConfigProperty(name = "app.cache.expense.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "app.cache.expense.maximum-weight", defaultValue = "16777216")
+    private long maximumWeight;
+
+    @Inject
+    @ConfigProperty(name = "app.cache.expense.ttl-seconds", defaultValue = "300")
+    private long ttlSeconds;
+
+    private final AtomicLong invalidations = new AtomicLong();
+    private Cache<String, Expense> cache;
+    private StatsCounter statsCounter;
+
+    @PostConstruct
+    void init() {
+        statsCounter = new MetricsStatsCounter(metricRegistry);
+        cache = Caffeine.newBuilder()
+                .weigher((String id, Expense expense) -> weigh(id, expense))
+                .maximumWeight(maximumWeight)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats(() -> statsCounter)
+                .build();
+
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("expense.cache.size")
+                        .withDescription("Expenses currently held in the near cache")
+                        .build(),
+                cache, Cache::estimatedSize);
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("expense.cache.weight")
+                        .withDescription("Approximate heap used by the near cache")
+                        .withUnit(MetricUnits.BYTES)
+                        .build(),
+                cache, c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+    }
+
+    /**
+     * Look an expense up, calling {@code loader} on a miss. Absent ids are not cached.
+     * Callers get their own copy, so the cached instance is never shared or mutated.
+     */
+    public Optional<Expense> get(String id, Function<String, Expense> loader) {
+        if (!enabled) {
+            return Optional.ofNullable(loader.apply(id));
+        }
+        Expense cached = cache.getIfPresent(id);
+        if (cached == null) {
+            cached = load(id, loader);
+        }
+        return Optional.ofNullable(ExpenseChange.snapshot(cached));
+    }
+
+    /**
+     * Look many expenses up at once. Ids not cached are handed to {@code loader} in a
+     * single call; ids it does not return are absent from the result and not cached.
+     * Like {@link #get}, the load runs outside the cache and its results are only
+     * cached if no invalidation happened meanwhile.
+     */
+    public Map<String, Expense> getAll(Collection<String> ids, Function<Set<String>, Map<String, Expense>> loader) {
+        if (!enabled) {
+            return copies(loader.apply(new LinkedHashSet<>(ids)));
+        }
+        Map<String, Expense> found = new HashMap<>(cache.getAllPresent(ids));
+        Set<String> missing = new LinkedHashSet<>(ids);
+        missing.removeAll(found.keySet());
+        if (!missing.isEmpty()) {
+            found.putAll(loadAll(missing, loader));
+        }
+        return copies(found);
+    }
+
+    public void invalidate(String id) {
+        if (enabled) {
+            invalidations.incrementAndGet();
+            cache.invalidate(id);
+        }
+    }
+
+    /**
+     * Load a miss and cache it unless an invalidation raced with the load, in which
+     * case the value may predate a commit and is only returned to this caller.
+     */
+    private Expense load(String id, Function<String, Expense> loader) {
+        long stamp = invalidations.get();
+        long start = System.nanoTime();
+        Expense loaded;
+        try {
+            loaded = ExpenseChange.snapshot(loader.apply(id));
+        } catch (RuntimeException | Error e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        if (loaded == null) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            return null;
+        }
+        statsCounter.recordLoadSuccess(System.nanoTime() - start);
+        return publish(id, loaded, stamp);
+    }
+
+    private Map<String, Expense> loadAll(Set<String> missing, Function<Set<String>, Map<String, Expense>> loader) {
+        long stamp = invalidations.get();
+        long start = System.nanoTime();
+        Map<String, Expense> loaded;
+        try {
+            loaded = loader.apply(Set.copyOf(missing));
+        } catch (RuntimeException | Error e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        statsCounter.recordLoadSuccess(System.nanoTime() - start);
+        Map<String, Expense> published = new HashMap<>(loaded.size() * 2);
+        loaded.forEach((id, expense) -> published.put(id, publish(id, ExpenseChange.snapshot(expense), stamp)));
+        return published;
+    }
+
+    /**
+     * Cache {@code loaded} unless an invalidation happened since {@code stamp}, and
+     * return the value to hand out: an entry cached concurrently wins.
+     */
+    private Expense publish(String id, Expense loaded, long stamp) {
+        if (invalidations.get() != stamp) {
+            return loaded;
+        }
+        Expense raced = cache.asMap().putIfAbsent(id, loaded);
+        if (raced != null) {
+            return raced;
+        }
+        if (invalidations.get() != stamp) {
+            // invalidated between the check and the put: take the possibly stale value back out
+            cache.asMap().remove(id, loaded);
+        }
+        return loaded;
+    }
+
+    void onWrite(@Observes ExpenseChange change) {
+        invalidate(change.id());
+    }
+
+    void onWriteCompleted(@Observes(during = TransactionPhase.AFTER_COMPLETION) ExpenseChange change) {
+        invalidate(change.id());
+    }
+
+    private static Map<String, Expense> copies(Map<String, Expense> expenses) {
+        Map<String, Expense> copies = new HashMap<>(expenses.size() * 2);
+        expenses.forEach((id, expense) -> copies.put(id, ExpenseChange.snapshot(expense)));
+        return copies;
+    }
+
+    private static int weigh(String id, Expense expense) {
+        return FIXED_WEIGHT
+                + 2 * (id.length()
+                + length(expense.getMethod())
+                + length(expense.getCategory())
+                + length(expense.getDescription()));
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * Feeds Caffeine's statistics straight into MicroProfile Metrics counters.
+     */
+    private static final class MetricsStatsCounter implements StatsCounter {
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter loadSuccesses;
+        private final Counter loadFailures;
+        private final Counter loadTime;
+        private final Counter evictions;
+        private final Counter evictionWeight;
+
+        private MetricsStatsCounter(MetricRegistry registry) {
+            hits = counter(registry, "expense.cache.hits", "Near cache lookups served from memory", MetricUnits.NONE);
+            misses = counter(registry, "expense.cache.misses", "Near cache lookups that went to the database",
+                    MetricUnits.NONE);
+            loadSuccesses = counter(registry, "expense.cache.loads", "Misses that found the expense", MetricUnits.NONE);
+            loadFailures = counter(registry, "expense.cache.load.failures",
+                    "Misses for ids that do not exist or failed to load", MetricUnits.NONE);
+            loadTime = counter(registry, "expense.cache.load.time", "Time spent loading on misses",
+                    MetricUnits.NANOSECONDS);
+            evictions = counter(registry, "expense.cache.evictions", "Entries evicted by size or TTL",
+                    MetricUnits.NONE);
+            evictionWeight = counter(registry, "expense.cache.eviction.weight", "Weight of evicted entries",
+                    MetricUnits.BYTES);
+        }
+
+        private static Counter counter(MetricRegistry registry, String name, String description, String unit) {
+            return registry.counter(Metadata.builder()
+                    .withName(name)
+                    .withDescription(description)
+                    .withUnit(unit)
+                    .build());
+        }
+
+        @Override
+        public void recordHits(int count) {
+            hits.inc(count);
+        }
+
+        @Override
+        public void recordMisses(int count) {
+            misses.inc(count);
+        }
+
+        @Override
+        public void recordLoadSuccess(long loadTimeNanos) {
+            loadSuccesses.inc();
+            loadTime.inc(loadTimeNanos);
+        }
+
+        @Override
+        public void recordLoadFailure(long loadTimeNanos) {
+            loadFailures.inc();
+            loadTime.inc(loadTimeNanos);
+        }
+
+        @Override
+        public void recordEviction(int weight, RemovalCause cause) {
+            evictions.inc();
+            evictionWeight.inc(weight);
+        }
+
+        @Override
+        public CacheStats snapshot() {
+            return new CacheStats(hits.getCount(), misses.getCount(), loadSuccesses.getCount(),
+                    loadFailures.getCount(), loadTime.getCount(), evictions.getCount(), evictionWeight.getCount());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package pe.joedayz.helidonjsonstore;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing plus the cursor for the next page.
+ */
+public class ExpensePage {
+
+    private final List<Expense> items;
+    private final PageCursor next;
+
+    public ExpensePage(List<Expense> items, PageCursor next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<Expense> getItems() {
+        return items;
+    }
+
+    /**
+     * Cursor for the following page, or {@code null} when this is the last one.
+     */
+    public PageCursor getNext() {
+        return next;
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,180 @@
+package pe.joedayz.helidonjsonstore;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Combination of filters for {@code /expenses/query}, compiled to one JPQL statement.
+ * Every filter is optional; {@code null} means "any". Amount bounds are inclusive,
+ * {@code createdFrom} is inclusive and {@code createdTo} exclusive. {@code text} is a
+ * case-insensitive substring of the description, matched literally: {@code %} and
+ * {@code _} in it are not wildcards.
+ * <p>
+ * The statement text depends only on which filters are present, the sort, the select
+ * list and whether a cursor is given, never on the values, which are bound as
+ * parameters. Each distinct shape is built once and cached here, and the constant text
+ * lets Hibernate's query plan cache and the database's statement cache reuse the
+ * compiled plan.
+ */
+public record ExpenseQuery(String category, String method, Double minAmount, Double maxAmount,
+                           LocalDateTime createdFrom, LocalDateTime createdTo, String text, Sort sort) {
+
+    private static final int MAX_CACHED_SHAPES = 4096;
+    private static final Map<String, String> JPQL_CACHE = new ConcurrentHashMap<>();
+
+    public enum Sort {
+        NEWEST("e.createdAt DESC, e.id DESC", true),
+        OLDEST("e.createdAt ASC, e.id ASC", true),
+        AMOUNT_DESC("e.amount DESC, e.id DESC", false),
+        AMOUNT_ASC("e.amount ASC, e.id ASC", false);
+
+        private final String orderBy;
+        private final boolean keyset;
+
+        Sort(String orderBy, boolean keyset) {
+            this.orderBy = orderBy;
+            this.keyset = keyset;
+        }
+
+        /**
+         * Whether pages continue with a {@link PageCursor}; amount orders use an offset.
+         */
+        public boolean keyset() {
+            return keyset;
+        }
+
+        /**
+         * {@code newest}, {@code oldest}, {@code amount-desc} or {@code amount-asc};
+         * {@code null} or blank gives {@link #NEWEST}.
+         */
+        public static Sort parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NEWEST;
+            }
+            try {
+                return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown sort '" + value + "'", e);
+            }
+        }
+    }
+
+    /**
+     * One page of results: {@code next} continues a keyset order, {@code nextOffset} an
+     * amount order; both are {@code null} on the last page.
+     */
+    public record Result(List<ExpenseView> items, PageCursor next, Integer nextOffset) {
+    }
+
+    public ExpenseQuery {
+        if (minAmount != null && maxAmount != null && minAmount > maxAmount) {
+            throw new IllegalArgumentException("minAmount must not exceed maxAmount");
+        }
+        if (createdFrom != null && createdTo != null && !createdFrom.isBefore(createdTo)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        category = blankToNull(category);
+        method = blankToNull(method);
+        text = blankToNull(text);
+        sort = sort != null ? sort : Sort.NEWEST;
+    }
+
+    /**
+     * The statement for this query's shape: {@code select} as the select list and, with
+     * {@code afterCursor}, the keyset condition on {@code :afterCreatedAt}/{@code :afterId}.
+     */
+    String jpql(String select, boolean afterCursor) {
+        String shape = shape(select, afterCursor);
+        String jpql = JPQL_CACHE.get(shape);
+        if (jpql == null) {
+            jpql = build(select, afterCursor);
+            if (JPQL_CACHE.size() < MAX_CACHED_SHAPES) {
+                JPQL_CACHE.putIfAbsent(shape, jpql);
+            }
+        }
+        return jpql;
+    }
+
+    /**
+     * Pass the filter values to {@code binder}, named as in {@link #jpql}.
+     */
+    void bind(BiConsumer<String, Object> binder) {
+        if (category != null) {
+            binder.accept("category", category);
+        }
+        if (method != null) {
+            binder.accept("method", method);
+        }
+        if (minAmount != null) {
+            binder.accept("minAmount", minAmount);
+        }
+        if (maxAmount != null) {
+            binder.accept("maxAmount", maxAmount);
+        }
+        if (createdFrom != null) {
+            binder.accept("createdFrom", createdFrom);
+        }
+        if (createdTo != null) {
+            binder.accept("createdTo", createdTo);
+        }
+        if (text != null) {
+            binder.accept("text", "%" + escapeLike(text.toLowerCase(Locale.ROOT)) + "%");
+        }
+    }
+
+    private String shape(String select, boolean afterCursor) {
+        StringBuilder key = new StringBuilder(select.length() + 16).append(select).append('|');
+        key.append(category != null ? 'c' : '-')
+                .append(method != null ? 'm' : '-')
+                .append(minAmount != null ? 'a' : '-')
+                .append(maxAmount != null ? 'A' : '-')
+                .append(createdFrom != null ? 'f' : '-')
+                .append(createdTo != null ? 't' : '-')
+                .append(text != null ? 'q' : '-')
+                .append(afterCursor ? 'k' : '-');
+        return key.append('|').append(sort.name()).toString();
+    }
+
+    private String build(String select, boolean afterCursor) {
+        StringBuilder jpql = new StringBuilder("SELECT ").append(select).append(" FROM Expense e WHERE 1 = 1");
+        if (category != null) {
+            jpql.append(" AND e.category = :category");
+        }
+        if (method != null) {
+            jpql.append(" AND e.method = :method");
+        }
+        if (minAmount != null) {
+            jpql.append(" AND e.amount >= :minAmount");
+        }
+        if (maxAmount != null) {
+            jpql.append(" AND e.amount <= :maxAmount");
+        }
+        if (createdFrom != null) {
+            jpql.append(" AND e.createdAt >= :createdFrom");
+        }
+        if (createdTo != null) {
+            jpql.append(" AND e.createdAt < :createdTo");
+        }
+        if (text != null) {
+            jpql.append(" AND LOWER(e.description) LIKE :text ESCAPE '\\'");
+        }
+        if (afterCursor) {
+            String op = sort == Sort.OLDEST ? ">" : "<";
+            jpql.append(" AND (e.createdAt ").append(op).append(" :afterCreatedAt")
+                    .append(" OR (e.createdAt = :afterCreatedAt AND e.id ").append(op).append(" :afterId))");
+        }
+        return jpql.append(" ORDER BY ").append(sort.orderBy).toString();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -12,6 +12,7 @@ import java.util.Optional;
 
 @ApplicationScoped
 @Transactional
+@Measured
 public class ExpenseRepository {
 
     @PersistenceContext
@@ -2,110 +2,536 @@ package pe.joedayz.helidonjsonstore;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
 
 @Path("/expenses")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class ExpenseResource {
 
+    /**
+     * Response header carrying the continuation token of a paginated listing.
+     * Absent on the last page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Response header carrying the next offset of an amount-ordered query.
+     */
+    public static final String NEXT_OFFSET_HEADER = "X-Next-Offset";
+
     @Inject
     private OracleJsonService oracleJsonService;
 
+    @Inject
+    private ExpenseExporter expenseExporter;
+
+    @Inject
+    private ExpenseAggregateStore aggregateStore;
+
+    @Inject
+    private ExpenseWriteBehind writeBehind;
+
+    @Inject
+    private ExpenseColumnStore columnStore;
+
+    @Inject
+    private ExpenseRollups rollups;
+
+    @Inject
+    private ExpenseDocumentStore documentStore;
+
+    @Inject
+    @ConfigProperty(name = "app.lookup.max-ids", defaultValue = "200")
+    private int maxLookupIds;
+
+    /**
+     * Lists expenses page by page, or with {@code ?ids=a,b,c} (or repeated {@code ids})
+     * returns exactly those expenses as an {@link ExpenseLookupResult}.
+     * List endpoints accept {@code ?fields=amount,category,...} to return only those
+     * properties (plus {@code id} and {@code createdAt}, which the cursor needs).
+     */
+    @GET
+    public Response getAllExpenses(@QueryParam("cursor") String cursor,
+                                   @QueryParam("limit") Integer limit,
+                                   @QueryParam("fields") String fields,
+                                   @QueryParam("ids") List<String> ids) {
+        if (ids != null && !ids.isEmpty()) {
+            List<String> split = ids.stream()
+                    .flatMap(value -> Arrays.stream(value.split(",")))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .toList();
+            return lookup(split);
+        }
+        return page(cursor, fields, (selected, after) -> oracleJsonService.findViewPage(selected, after, limit));
+    }
+
+    @POST
+    @Path("/lookup")
+    public Response lookupExpenses(ExpenseLookupRequest request) {
+        return lookup(request != null ? request.getIds() : null);
+    }
+
     @GET
-    public List<Expense> getAllExpenses() {
-        return oracleJsonService.findAll();
+    @Path("/export")
+    @Produces(ExpenseExporter.APPLICATION_NDJSON)
+    public Response exportExpenses() {
+        StreamingOutput body = expenseExporter::export;
+        return Response.ok(body).build();
     }
 
     @GET
     @Path("/{id}")
     public Response getExpenseById(@PathParam("id") String id) {
         return oracleJsonService.findById(id)
-                .map(expense -> Response.ok(expense).build())
+                .map(expense -> Response.ok(expense).tag(entityTag(expense.getVersion())).build())
                 .orElse(Response.status(Response.Status.NOT_FOUND).build());
     }
 
+    /**
+     * The expense as stored in the document mirror, bytes copied as they are.
+     */
+    @GET
+    @Path("/{id}/document")
+    public Response getExpenseDocument(@PathParam("id") String id) {
+        if (!documentStore.isReady()) {
+            return documentsDisabled();
+        }
+        return documentStore.find(id)
+                .map(document -> Response.ok((ExpenseDocumentWriter.Body) output -> output.write(document)).build())
+                .orElse(Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    /**
+     * Stored documents by {@code category} and/or {@code method}, in id order; the next
+     * page starts {@code after} the last id returned.
+     */
+    @GET
+    @Path("/documents")
+    public Response getExpenseDocuments(@QueryParam("category") String category,
+                                        @QueryParam("method") String method,
+                                        @QueryParam("after") String after,
+                                        @QueryParam("limit") Integer limit) {
+        if (!documentStore.isReady()) {
+            return documentsDisabled();
+        }
+        if (blankToNull(category) == null && blankToNull(method) == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("Invalid document query", "category or method is required"))
+                    .build();
+        }
+        int size = oracleJsonService.pageSize(limit);
+        ExpenseDocumentWriter.Body body = output -> documentStore.writeMatching(blankToNull(category),
+                blankToNull(method), blankToNull(after), size, output);
+        return Response.ok(body).build();
+    }
+
     @GET
     @Path("/category/{category}")
-    public List<Expense> getExpensesByCategory(@PathParam("category") String category) {
-        return oracleJsonService.findByCategory(category);
+    public Response getExpensesByCategory(@PathParam("category") String category,
+                                          @QueryParam("cursor") String cursor,
+                                          @QueryParam("limit") Integer limit,
+                                          @QueryParam("fields") String fields) {
+        return page(cursor, fields,
+                (selected, after) -> oracleJsonService.findViewPageByCategory(category, selected, after, limit));
     }
 
     @GET
     @Path("/method/{method}")
-    public List<Expense> getExpensesByMethod(@PathParam("method") String method) {
-        return oracleJsonService.findByMethod(method);
+    public Response getExpensesByMethod(@PathParam("method") String method,
+                                        @QueryParam("cursor") String cursor,
+                                        @QueryParam("limit") Integer limit,
+                                        @QueryParam("fields") String fields) {
+        return page(cursor, fields,
+                (selected, after) -> oracleJsonService.findViewPageByMethod(method, selected, after, limit));
     }
 
+    /**
+     * One page of expenses with an amount in {@code [min, max]}, highest first. Pages
+     * continue with {@code offset}, whose next value comes in {@value #NEXT_OFFSET_HEADER}.
+     */
     @GET
     @Path("/amount-range")
-    public List<Expense> getExpensesByAmountRange(
+    public Response getExpensesByAmountRange(
             @QueryParam("min") double minAmount, 
-            @QueryParam("max") double maxAmount) {
-        return oracleJsonService.findByAmountRange(minAmount, maxAmount);
+            @QueryParam("max") double maxAmount,
+            @QueryParam("offset") Integer offset,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("fields") String fields) {
+        Set<ExpenseField> selected;
+        try {
+            selected = ExpenseField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return invalidFields(e);
+        }
+        ExpenseQuery.Result result = oracleJsonService.findViewsByAmountRange(minAmount, maxAmount, selected,
+                offset, limit);
+        Response.ResponseBuilder response = Response.ok(new GenericEntity<List<ExpenseView>>(result.items()) { });
+        if (result.nextOffset() != null) {
+            response.header(NEXT_OFFSET_HEADER, result.nextOffset());
+        }
+        return response.build();
     }
 
     @GET
     @Path("/search")
-    public List<Expense> searchExpensesByDescription(@QueryParam("q") String description) {
-        return oracleJsonService.findByDescriptionContaining(description);
+    public Response searchExpensesByDescription(@QueryParam("q") String description,
+                                                @QueryParam("cursor") String cursor,
+                                                @QueryParam("limit") Integer limit,
+                                                @QueryParam("fields") String fields) {
+        return page(cursor, fields, (selected, after) ->
+                oracleJsonService.findViewPageByDescriptionContaining(description, selected, after, limit));
     }
 
+    /**
+     * Any combination of filters in one statement: {@code category}, {@code method},
+     * {@code minAmount}/{@code maxAmount}, {@code from}/{@code to} (ISO date or date-time,
+     * {@code to} exclusive) and {@code q} (description substring). {@code sort} is
+     * {@code newest} (default), {@code oldest}, {@code amount-desc} or {@code amount-asc};
+     * date orders continue with {@code cursor}, amount orders with {@code offset}, whose
+     * next value comes in {@value #NEXT_OFFSET_HEADER}.
+     */
+    @GET
+    @Path("/query")
+    public Response queryExpenses(@QueryParam("category") String category,
+                                  @QueryParam("method") String method,
+                                  @QueryParam("minAmount") Double minAmount,
+                                  @QueryParam("maxAmount") Double maxAmount,
+                                  @QueryParam("from") String from,
+                                  @QueryParam("to") String to,
+                                  @QueryParam("q") String text,
+                                  @QueryParam("sort") String sort,
+                                  @QueryParam("cursor") String cursor,
+                                  @QueryParam("offset") Integer offset,
+                                  @QueryParam("limit") Integer limit,
+                                  @QueryParam("fields") String fields) {
+        ExpenseQuery criteria;
+        PageCursor after;
+        Set<ExpenseField> selected;
+        try {
+            criteria = new ExpenseQuery(category, method, minAmount, maxAmount,
+                    dateTime(from), dateTime(to), text, ExpenseQuery.Sort.parse(sort));
+            if (cursor != null && !criteria.sort().keyset()) {
+                throw new IllegalArgumentException("cursor only applies to newest/oldest; use offset");
+            }
+            if (offset != null && criteria.sort().keyset()) {
+                throw new IllegalArgumentException("offset only applies to amount orders; use cursor");
+            }
+            after = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("Invalid query", e.getMessage()))
+                    .build();
+        }
+        try {
+            selected = ExpenseField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return invalidFields(e);
+        }
+        ExpenseQuery.Result result = oracleJsonService.query(criteria, selected, after, offset, limit);
+        Response.ResponseBuilder response = Response.ok(new GenericEntity<List<ExpenseView>>(result.items()) { });
+        if (result.next() != null) {
+            response.header(NEXT_CURSOR_HEADER, result.next().encode());
+        }
+        if (result.nextOffset() != null) {
+            response.header(NEXT_OFFSET_HEADER, result.nextOffset());
+        }
+        return response.build();
+    }
+
+    /**
+     * Creates an expense. With write-behind ingestion enabled the response is sent once
+     * the group commit containing it has completed; a full queue answers 503.
+     */
     @POST
-    public Response createExpense(Expense expense) {
-        Expense savedExpense = oracleJsonService.save(expense);
-        return Response.status(Response.Status.CREATED)
-                .entity(savedExpense)
-                .build();
+    public CompletionStage<Response> createExpense(Expense expense) {
+        if (!writeBehind.isEnabled()) {
+            try {
+                return CompletableFuture.completedFuture(created(oracleJsonService.create(expense)));
+            } catch (DuplicateExpenseException e) {
+                return CompletableFuture.completedFuture(conflict(e));
+            }
+        }
+        try {
+            return writeBehind.submit(expense).handle((saved, error) -> {
+                if (error == null) {
+                    return created(saved);
+                }
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof DuplicateExpenseException duplicate) {
+                    return conflict(duplicate);
+                }
+                return Response.serverError()
+                        .entity(new ErrorResponse("Could not store expense", cause.getMessage()))
+                        .build();
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, 1)
+                    .entity(new ErrorResponse("Ingestion queue full", e.getMessage()))
+                    .build());
+        }
     }
 
     @PUT
     @Path("/{id}")
-    public Response updateExpense(@PathParam("id") String id, Expense expense) {
-        if (!oracleJsonService.findById(id).isPresent()) {
-            return Response.status(Response.Status.NOT_FOUND).build();
+    public Response updateExpense(@PathParam("id") String id,
+                                  @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                                  Expense expense) {
+        Long expectedVersion;
+        try {
+            expectedVersion = parseIfMatch(ifMatch);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).build();
         }
-        
-        Expense updatedExpense = new Expense(id, expense.getAmount(), expense.getMethod(), 
-                                          expense.getCategory(), expense.getCreatedAt(), expense.getDescription());
-        Expense saved = oracleJsonService.update(updatedExpense);
-        return Response.ok(saved).build();
+        OracleJsonService.WriteResult result = oracleJsonService.update(id, expense, expectedVersion);
+        return writeResponse(result);
     }
 
     @DELETE
     @Path("/{id}")
-    public Response deleteExpense(@PathParam("id") String id) {
-        if (!oracleJsonService.findById(id).isPresent()) {
-            return Response.status(Response.Status.NOT_FOUND).build();
+    public Response deleteExpense(@PathParam("id") String id,
+                                  @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
+        Long expectedVersion;
+        try {
+            expectedVersion = parseIfMatch(ifMatch);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).build();
         }
-        
-        oracleJsonService.deleteById(id);
-        return Response.noContent().build();
+        OracleJsonService.WriteResult result = oracleJsonService.deleteById(id, expectedVersion);
+        return writeResponse(result);
+    }
+
+    /**
+     * Count/sum/avg/min/max of the amount grouped by any of {@code category},
+     * {@code method} and {@code day} ({@code ?groupBy=category,day}), answered from the
+     * in-memory {@link ExpenseColumnStore}. Optional filters as in {@code /query}.
+     */
+    @GET
+    @Path("/analytics")
+    public Response getAnalytics(@QueryParam("groupBy") String groupBy,
+                                 @QueryParam("category") String category,
+                                 @QueryParam("method") String method,
+                                 @QueryParam("from") String from,
+                                 @QueryParam("to") String to) {
+        if (!columnStore.isReady()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(new ErrorResponse("Analytics unavailable", "The column store is not loaded"))
+                    .build();
+        }
+        Set<ExpenseColumnStore.Dimension> dimensions;
+        LocalDateTime fromDateTime;
+        LocalDateTime toDateTime;
+        try {
+            dimensions = ExpenseColumnStore.Dimension.parse(groupBy);
+            fromDateTime = dateTime(from);
+            toDateTime = dateTime(to);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("Invalid analytics query", e.getMessage()))
+                    .build();
+        }
+        return Response.ok(columnStore.aggregate(dimensions, blankToNull(category), blankToNull(method),
+                fromDateTime, toDateTime)).build();
+    }
+
+    /**
+     * Count/sum per {@code bucket} ({@code minute}, {@code hour} or {@code day}) and
+     * category/method for buckets starting in {@code [from, to)}, from {@link ExpenseRollups}.
+     */
+    @GET
+    @Path("/rollup")
+    public Response getRollup(@QueryParam("bucket") String bucket,
+                              @QueryParam("from") String from,
+                              @QueryParam("to") String to,
+                              @QueryParam("category") String category,
+                              @QueryParam("method") String method) {
+        if (!rollups.isReady()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(new ErrorResponse("Rollups unavailable", "The rollups are not loaded"))
+                    .build();
+        }
+        ExpenseRollups.Granularity granularity;
+        LocalDateTime fromDateTime;
+        LocalDateTime toDateTime;
+        try {
+            granularity = ExpenseRollups.Granularity.parse(bucket);
+            fromDateTime = dateTime(from);
+            toDateTime = dateTime(to);
+            if (fromDateTime != null && toDateTime != null && !fromDateTime.isBefore(toDateTime)) {
+                throw new IllegalArgumentException("from must be before to");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("Invalid rollup query", e.getMessage()))
+                    .build();
+        }
+        return Response.ok(rollups.query(granularity, fromDateTime, toDateTime,
+                blankToNull(category), blankToNull(method))).build();
     }
 
     @GET
     @Path("/statistics")
     public Response getExpenseStatistics() {
-        OracleJsonService.ExpenseStatistics stats = oracleJsonService.getStatistics();
+        OracleJsonService.ExpenseStatistics stats = aggregateStore.isReady()
+                ? aggregateStore.statistics()
+                : oracleJsonService.getStatistics();
         return Response.ok(stats).build();
     }
 
     @GET
     @Path("/total/category/{category}")
     public Response getTotalByCategory(@PathParam("category") String category) {
-        double total = oracleJsonService.getTotalByCategory(category);
+        double total = aggregateStore.isReady()
+                ? aggregateStore.totalByCategory(category)
+                : oracleJsonService.getTotalByCategory(category);
         return Response.ok(new TotalAmount(category, total)).build();
     }
 
     @GET
     @Path("/total/method/{method}")
     public Response getTotalByMethod(@PathParam("method") String method) {
-        double total = oracleJsonService.getTotalByMethod(method);
+        double total = aggregateStore.isReady()
+                ? aggregateStore.totalByMethod(method)
+                : oracleJsonService.getTotalByMethod(method);
         return Response.ok(new TotalAmount(method, total)).build();
     }
 
+    private static Response created(Expense expense) {
+        return Response.status(Response.Status.CREATED)
+                .entity(expense)
+                .build();
+    }
+
+    private static Response conflict(DuplicateExpenseException e) {
+        return Response.status(Response.Status.CONFLICT)
+                .entity(new ErrorResponse("Expense already exists", e.getMessage()))
+                .build();
+    }
+
+    private static Response writeResponse(OracleJsonService.WriteResult result) {
+        return switch (result.status()) {
+            case NOT_FOUND -> Response.status(Response.Status.NOT_FOUND).build();
+            case VERSION_MISMATCH -> Response.status(Response.Status.PRECONDITION_FAILED).build();
+            case APPLIED -> {
+                Response.ResponseBuilder response = Response.noContent();
+                if (result.version() != null) {
+                    response.tag(entityTag(result.version()));
+                }
+                yield response.build();
+            }
+        };
+    }
+
+    private static EntityTag entityTag(long version) {
+        return new EntityTag(Long.toString(version));
+    }
+
+    /**
+     * The expected version from an If-Match header, or {@code null} when the header is
+     * absent or {@code *}. Weak tags are accepted since versions are only compared.
+     *
+     * @throws IllegalArgumentException if the header cannot match any version
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 2 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("Unsupported If-Match: " + ifMatch);
+        }
+        return Long.parseLong(tag.substring(1, tag.length() - 1));
+    }
+
+    private Response lookup(List<String> ids) {
+        if (ids == null || ids.isEmpty() || ids.contains(null)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("Invalid lookup", "ids must be a non-empty list of ids"))
+                    .build();
+        }
+        if (ids.size() > maxLookupIds) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("Too many ids",
+                            ids.size() + " ids requested, at most " + maxLookupIds + " allowed"))
+                    .build();
+        }
+        return Response.ok(ExpenseLookupResult.of(ids, oracleJsonService.findAllById(ids))).build();
+    }
+
+    private Response page(String cursor, String fields,
+                          BiFunction<Set<ExpenseField>, PageCursor, ExpenseView.Page> query) {
+        PageCursor after;
+        try {
+            after = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("Invalid cursor", e.getMessage()))
+                    .build();
+        }
+        Set<ExpenseField> selected;
+        try {
+            selected = ExpenseField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return invalidFields(e);
+        }
+        ExpenseView.Page page = query.apply(selected, after);
+        // generic type kept so the list is written by ExpenseJsonProvider
+        Response.ResponseBuilder response = Response.ok(new GenericEntity<List<ExpenseView>>(page.items()) { });
+        if (page.hasNext()) {
+            response.header(NEXT_CURSOR_HEADER, page.next().encode());
+        }
+        return response.build();
+    }
+
+    /**
+     * {@code null}, an ISO date (midnight) or an ISO date-time.
+     */
+    private static LocalDateTime dateTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static Response documentsDisabled() {
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity(new ErrorResponse("Document store is disabled", "Set app.document-store.enabled=true"))
+                .build();
+    }
+
+    private static Response invalidFields(IllegalArgumentException e) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity(new ErrorResponse("Invalid fields", e.getMessage()))
+                .build();
+    }
+
     // Helper class for total amount response
     public static class TotalAmount {
         private final String type;
@@ -0,0 +1,332 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Count/sum of the amount per (time bucket, category, method) at minute, hour and day
+ * granularity, behind {@code /expenses/rollup}.
+ * <p>
+ * Writes land in the finest level still covering their {@code created_at}: minute
+ * buckets for the last {@code minute-retention-minutes}, hour buckets back to
+ * {@code hour-retention-hours}, day buckets before that. A background task folds
+ * minute buckets past their retention into hours and hours into days, so each row is
+ * counted in exactly one level. A query at some granularity reads that level plus the
+ * finer, not yet compacted ones rolled up on the fly, so it costs O(buckets), not O(rows).
+ * <p>
+ * Writers share the read side of a lock (the totals are striped adders); compaction
+ * takes the write side so no query sees a bucket in two levels. Built at startup from
+ * the table and kept current from committed {@link ExpenseChange} events.
+ */
+@ApplicationScoped
+public class ExpenseRollups {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpenseRollups.class.getName());
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES), HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        LocalDateTime bucketOf(LocalDateTime dateTime) {
+            return dateTime.truncatedTo(unit);
+        }
+
+        /**
+         * Start of the first bucket starting at or after {@code dateTime}.
+         */
+        LocalDateTime ceiling(LocalDateTime dateTime) {
+            LocalDateTime bucket = bucketOf(dateTime);
+            return bucket.equals(dateTime) ? bucket : bucket.plus(1, unit);
+        }
+
+        /**
+         * {@code minute}, {@code hour} or {@code day}, case-insensitive.
+         */
+        public static Granularity parse(String value) {
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("bucket is required (minute, hour or day)");
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown bucket '" + value + "'", e);
+            }
+        }
+    }
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    @ConfigProperty(name = "app.rollup.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "app.rollup.minute-retention-minutes", defaultValue = "1440")
+    private long minuteRetentionMinutes;
+
+    @Inject
+    @ConfigProperty(name = "app.rollup.hour-retention-hours", defaultValue = "2160")
+    private long hourRetentionHours;
+
+    @Inject
+    @ConfigProperty(name = "app.rollup.compaction-interval-seconds", defaultValue = "60")
+    private long compactionIntervalSeconds;
+
+    private final Tier[] levels = {new Tier(), new Tier(), new Tier()};
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService compactor;
+    private volatile boolean ready;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        // start with compacted watermarks so the initial load goes straight to the right level
+        advanceWatermarks(LocalDateTime.now());
+        compactor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("expense-rollup-compactor").daemon().factory());
+        compactor.scheduleWithFixedDelay(this::compactSafely,
+                compactionIntervalSeconds, compactionIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long rows = oracleJsonService.streamAll(e -> add(e, 1));
+            ready = true;
+            LOGGER.info(() -> "Expense rollups built from " + rows + " rows");
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not build expense rollups, rollups unavailable", e);
+        }
+    }
+
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ExpenseChange change) {
+        if (!enabled) {
+            return;
+        }
+        if (change.before() != null) {
+            add(change.before(), -1);
+        }
+        if (change.after() != null) {
+            add(change.after(), 1);
+        }
+    }
+
+    /**
+     * Whether the rollups reflect the table and may answer queries.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Totals per {@code granularity} bucket starting in {@code [from, to)} (either bound
+     * may be {@code null}), per category and method, optionally narrowed to one
+     * {@code category} and/or {@code method}. Buckets before
+     * {@link Report#availableFrom()} were compacted into a coarser level and are not
+     * reported at this granularity.
+     * <p>
+     * Bounds are rounded up to {@code granularity} before the levels are ranged, so a
+     * bucket is either reported whole or not at all: a finer key belongs to the range
+     * exactly when the bucket it rolls up into starts in it.
+     */
+    public Report query(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                        String category, String method) {
+        LocalDateTime fromBucket = from != null ? granularity.ceiling(from) : null;
+        LocalDateTime toBucket = to != null ? granularity.ceiling(to) : null;
+        Map<LocalDateTime, Map<Key, double[]>> buckets = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            for (int level = 0; level <= granularity.ordinal(); level++) {
+                for (Map.Entry<LocalDateTime, Map<Key, Totals>> bucket
+                        : levels[level].range(fromBucket, toBucket).entrySet()) {
+                    LocalDateTime start = granularity.bucketOf(bucket.getKey());
+                    for (Map.Entry<Key, Totals> entry : bucket.getValue().entrySet()) {
+                        Key key = entry.getKey();
+                        if ((category != null && !category.equals(key.category()))
+                                || (method != null && !method.equals(key.method()))) {
+                            continue;
+                        }
+                        double[] totals = buckets.computeIfAbsent(start, k -> new TreeMap<>(Key.ORDER))
+                                .computeIfAbsent(key, k -> new double[2]);
+                        totals[0] += entry.getValue().count.sum();
+                        totals[1] += entry.getValue().sum.sum();
+                    }
+                }
+            }
+            LocalDateTime availableFrom = granularity == Granularity.DAY ? null : levels[granularity.ordinal()].watermark;
+            List<Point> points = new ArrayList<>();
+            buckets.forEach((start, byKey) -> byKey.forEach((key, totals) -> {
+                if (totals[0] != 0) {
+                    points.add(new Point(start, key.category(), key.method(), (long) totals[0], totals[1]));
+                }
+            }));
+            return new Report(granularity, availableFrom, points);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fold buckets that fell out of their level's retention, as of {@code now}, into
+     * the next coarser level.
+     */
+    void compact(LocalDateTime now) {
+        lock.writeLock().lock();
+        try {
+            advanceWatermarks(now);
+            for (int level = 0; level < levels.length - 1; level++) {
+                Map<LocalDateTime, Map<Key, Totals>> expired = levels[level].buckets.headMap(levels[level].watermark);
+                for (Map.Entry<LocalDateTime, Map<Key, Totals>> bucket : expired.entrySet()) {
+                    for (Map.Entry<Key, Totals> entry : bucket.getValue().entrySet()) {
+                        long count = entry.getValue().count.sum();
+                        if (count != 0) {
+                            totals(bucket.getKey(), level + 1, entry.getKey())
+                                    .add(count, entry.getValue().sum.sum());
+                        }
+                    }
+                }
+                expired.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactSafely() {
+        try {
+            compact(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Rollup compaction failed", e);
+        }
+    }
+
+    /**
+     * Watermarks only move forward, so a row never goes back to a level it left.
+     */
+    private void advanceWatermarks(LocalDateTime now) {
+        LocalDateTime minute = Granularity.MINUTE.bucketOf(now.minusMinutes(minuteRetentionMinutes));
+        LocalDateTime hour = Granularity.HOUR.bucketOf(now.minusHours(hourRetentionHours));
+        if (levels[0].watermark == null || minute.isAfter(levels[0].watermark)) {
+            levels[0].watermark = minute;
+        }
+        if (levels[1].watermark == null || hour.isAfter(levels[1].watermark)) {
+            levels[1].watermark = hour;
+        }
+    }
+
+    private void add(Expense expense, int sign) {
+        if (expense.getCreatedAt() == null) {
+            return;
+        }
+        Key key = new Key(expense.getCategory(), expense.getMethod());
+        lock.readLock().lock();
+        try {
+            totals(expense.getCreatedAt(), 0, key).add(sign, sign * expense.getAmount());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Totals for {@code key} in the bucket of {@code createdAt} at the finest level,
+     * starting from {@code level}, whose watermark it has not passed.
+     */
+    private Totals totals(LocalDateTime createdAt, int level, Key key) {
+        int target = level;
+        while (target < levels.length - 1
+                && Granularity.values()[target].bucketOf(createdAt).isBefore(levels[target].watermark)) {
+            target++;
+        }
+        LocalDateTime bucket = Granularity.values()[target].bucketOf(createdAt);
+        return levels[target].buckets.computeIfAbsent(bucket, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new Totals());
+    }
+
+    private static final class Tier {
+        private final ConcurrentSkipListMap<LocalDateTime, Map<Key, Totals>> buckets = new ConcurrentSkipListMap<>();
+        // buckets before this were compacted into the next level; null for days
+        private volatile LocalDateTime watermark;
+
+        private Map<LocalDateTime, Map<Key, Totals>> range(LocalDateTime from, LocalDateTime to) {
+            if (from != null && to != null) {
+                return buckets.subMap(from, true, to, false);
+            }
+            if (from != null) {
+                return buckets.tailMap(from, true);
+            }
+            return to != null ? buckets.headMap(to, false) : buckets;
+        }
+    }
+
+    private record Key(String category, String method) {
+        static final Comparator<Key> ORDER = Comparator
+                .comparing(Key::category, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(Key::method, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+    }
+
+    private static final class Totals {
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private void add(long countDelta, double amountDelta) {
+            count.add(countDelta);
+            sum.add(amountDelta);
+        }
+    }
+
+    /**
+     * Totals of one (bucket, category, method); {@code bucket} is the bucket's start.
+     */
+    public record Point(LocalDateTime bucket, String category, String method, long count, double sum) {
+    }
+
+    /**
+     * Points ordered by bucket, then category and method. {@code availableFrom} is the
+     * first bucket kept at this granularity ({@code null} for days).
+     */
+    public record Report(Granularity granularity, LocalDateTime availableFrom, List<Point> points) {
+    }
+}
@@ -0,0 +1,37 @@
+package pe.joedayz.helidonjsonstore;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only projection of an expense for list responses. Properties that were not
+ * selected are {@code null} and left out of the JSON.
+ */
+public record ExpenseView(String id, Double amount, String method, String category,
+                          LocalDateTime createdAt, String description, Long version) {
+
+    /**
+     * The selected properties of an already loaded expense.
+     */
+    public static ExpenseView of(Expense expense, Set<ExpenseField> fields) {
+        return new ExpenseView(
+                expense.getId(),
+                fields.contains(ExpenseField.AMOUNT) ? expense.getAmount() : null,
+                fields.contains(ExpenseField.METHOD) ? expense.getMethod() : null,
+                fields.contains(ExpenseField.CATEGORY) ? expense.getCategory() : null,
+                expense.getCreatedAt(),
+                fields.contains(ExpenseField.DESCRIPTION) ? expense.getDescription() : null,
+                fields.contains(ExpenseField.VERSION) ? expense.getVersion() : null);
+    }
+
+    /**
+     * One keyset page of views plus the cursor for the next page, {@code null} on the last.
+     */
+    public record Page(List<ExpenseView> items, PageCursor next) {
+
+        public boolean hasNext() {
+            return next != null;
+        }
+    }
+}
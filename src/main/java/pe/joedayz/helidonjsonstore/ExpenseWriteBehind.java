@@ -0,0 +1,169 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opt-in group commit for {@code POST /expenses}. Accepted expenses wait in a bounded
+ * queue; writer threads drain up to {@code batch-size} of them at a time and insert
+ * them with {@link OracleJsonService#createAll}, one transaction and one batched
+ * flush per group. Each caller's future completes once its group has committed.
+ * <p>
+ * When a group fails (typically one duplicate id) its expenses are retried one by one
+ * through {@link OracleJsonService#create}, so only the offending request fails.
+ * A full queue is rejected straight away instead of blocking the request thread.
+ */
+@ApplicationScoped
+public class ExpenseWriteBehind {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpenseWriteBehind.class.getName());
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @ConfigProperty(name = "app.ingest.write-behind.enabled", defaultValue = "false")
+    private boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "app.ingest.write-behind.queue-capacity", defaultValue = "10000")
+    private int queueCapacity;
+
+    @Inject
+    @ConfigProperty(name = "app.ingest.write-behind.writers", defaultValue = "2")
+    private int writers;
+
+    @Inject
+    @ConfigProperty(name = "app.ingest.write-behind.batch-size", defaultValue = "200")
+    private int batchSize;
+
+    @Inject
+    @ConfigProperty(name = "app.ingest.write-behind.linger-ms", defaultValue = "2")
+    private long lingerMillis;
+
+    private BlockingQueue<Pending> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("expense.ingest.queue.depth")
+                        .withDescription("Expenses accepted and waiting for their group commit")
+                        .build(),
+                queue, BlockingQueue::size);
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            threads.add(Thread.ofPlatform().name("expense-writer-" + i).daemon().start(this::drain));
+        }
+        LOGGER.info(() -> "Write-behind ingestion started: " + writers + " writers, batches of " + batchSize);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue an expense for the next group commit.
+     *
+     * @return a future completed with the stored expense after commit, or exceptionally
+     *         with {@link DuplicateExpenseException} or the persistence failure
+     * @throws RejectedExecutionException if the queue is full or ingestion is shutting down
+     */
+    public CompletableFuture<Expense> submit(Expense expense) {
+        if (!running) {
+            throw new RejectedExecutionException("Write-behind ingestion is not running");
+        }
+        Pending pending = new Pending(expense, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            throw new RejectedExecutionException("Ingestion queue is full (" + queueCapacity + ")");
+        }
+        return pending.result();
+    }
+
+    private void drain() {
+        List<Pending> group = new ArrayList<>(batchSize);
+        // keep going after stop() until the queue is empty, so accepted expenses are not lost
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, batchSize - 1);
+                if (group.size() < batchSize && lingerMillis > 0) {
+                    // give a burst a moment to fill the group before paying for a commit
+                    Pending next = queue.poll(lingerMillis, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        group.add(next);
+                        queue.drainTo(group, batchSize - group.size());
+                    }
+                }
+                write(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                group.forEach(p -> p.result().completeExceptionally(e));
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> group) {
+        try {
+            oracleJsonService.createAll(group.stream().map(Pending::expense).toList());
+            group.forEach(p -> p.result().complete(p.expense()));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Group of " + group.size() + " failed, retrying one by one", e);
+            for (Pending pending : group) {
+                try {
+                    // a fresh copy, the rolled-back instance may carry state from the failed flush
+                    Expense stored = oracleJsonService.create(ExpenseChange.snapshot(pending.expense()));
+                    pending.result().complete(stored);
+                } catch (RuntimeException single) {
+                    pending.result().completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private record Pending(Expense expense, CompletableFuture<Expense> result) {
+    }
+}
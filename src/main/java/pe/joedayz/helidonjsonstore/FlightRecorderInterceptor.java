@@ -0,0 +1,50 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Emits a {@link PersistenceOperationEvent} per {@link Measured} call. Runs inside the
+ * {@code @Transactional} interceptor so the JTA transaction key can be attached; the
+ * fields are only filled in when the event passes its JFR threshold.
+ */
+@Measured
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 300)
+public class FlightRecorderInterceptor {
+
+    @Inject
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @AroundInvoke
+    Object record(InvocationContext context) throws Exception {
+        PersistenceOperationEvent event = new PersistenceOperationEvent();
+        if (!event.isEnabled()) {
+            return context.proceed();
+        }
+        event.begin();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = context.proceed();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = context.getMethod().getDeclaringClass().getSimpleName()
+                        + "." + context.getMethod().getName();
+                event.rows = OperationMetricsInterceptor.returnsRows(context.getMethod().getReturnType())
+                        ? OperationMetricsInterceptor.rowCount(result) : -1;
+                Object key = transactionRegistry.getTransactionKey();
+                event.transactionId = key != null ? key.toString() : null;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package pe.joedayz.helidonjsonstore;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one batch written by {@link ConcurrentIngestionEngine}, from the
+ * moment it starts waiting for a connection permit until it commits or fails.
+ */
+@Name("pe.joedayz.helidonjsonstore.IngestionBatch")
+@Label("Ingestion Batch")
+@Description("Batch of expenses inserted on a virtual thread")
+@Category({"Helidon JSON Store", "Ingestion"})
+@StackTrace(false)
+class IngestionBatchEvent extends Event {
+
+    @Label("Batch Index")
+    int index;
+
+    @Label("Size")
+    int size;
+
+    @Label("Permit Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long permitWait;
+
+    @Label("Error")
+    String error;
+}
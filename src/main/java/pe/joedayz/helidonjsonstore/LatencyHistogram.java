@@ -0,0 +1,114 @@
+package pe.joedayz.helidonjsonstore;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe log-linear latency histogram in the style of HdrHistogram: values below
+ * 128 ns are counted exactly, larger ones in buckets of 64 linear steps per power of
+ * two, so every recorded value is reported within 1.6% of its true value. Percentiles
+ * report the highest value of the bucket they fall in; the maximum is exact.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 64;
+    private static final int EXACT = 2 * SUB_BUCKETS;
+    private static final int SHIFTS = 57;
+
+    private final AtomicLongArray counts = new AtomicLongArray(EXACT + SHIFTS * SUB_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        total.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Add all values recorded by {@code other} to this histogram.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        total.add(other.total.sum());
+        sum.add(other.sum.sum());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long count = count();
+        return count > 0 ? (double) sum.sum() / count : 0.0;
+    }
+
+    /**
+     * Value at {@code percentile} (0-100), in nanoseconds.
+     */
+    public long valueAt(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * The usual percentiles, converted to microseconds.
+     */
+    public Summary summary() {
+        return new Summary(count(), micros(mean()), micros(valueAt(50)), micros(valueAt(90)),
+                micros(valueAt(99)), micros(valueAt(99.9)), micros(max()));
+    }
+
+    static int indexOf(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+        int sub = (int) (value >>> shift);
+        return EXACT + (shift - 1) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < EXACT) {
+            return index;
+        }
+        int shift = (index - EXACT) / SUB_BUCKETS + 1;
+        long sub = (index - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    private static double micros(double nanos) {
+        return Math.round(nanos / 10.0) / 100.0;
+    }
+
+    /**
+     * Percentile summary in microseconds.
+     */
+    public record Summary(long count, double mean, double p50, double p90, double p99, double p999, double max) {
+    }
+}
@@ -0,0 +1,146 @@
+package pe.joedayz.helidonjsonstore;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Dynamic proxies over JDBC that report every statement execution to
+ * {@link StatementMonitor}: a data source hands out monitored connections, which hand
+ * out monitored statements. Prepared statements remember the type of each bind
+ * parameter ({@code setString} gives {@code String}, {@code setNull} gives {@code null}),
+ * which is what the slow-statement log shows instead of the values.
+ */
+final class MonitoredJdbc {
+
+    private static final String[] NO_PARAMETERS = new String[0];
+
+    private MonitoredJdbc() {
+    }
+
+    static DataSource wrap(DataSource dataSource, StatementMonitor monitor) {
+        return proxy(DataSource.class, dataSource, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            return result instanceof Connection connection ? connection(connection, monitor) : result;
+        });
+    }
+
+    private static Connection connection(Connection connection, StatementMonitor monitor) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            return switch (result) {
+                case CallableStatement statement ->
+                        statement(CallableStatement.class, statement, (String) args[0], monitor);
+                case PreparedStatement statement ->
+                        statement(PreparedStatement.class, statement, (String) args[0], monitor);
+                case Statement statement -> statement(Statement.class, statement, null, monitor);
+                case null, default -> result;
+            };
+        });
+    }
+
+    private static <S extends Statement> S statement(Class<S> type, S statement, String sql,
+                                                     StatementMonitor monitor) {
+        return proxy(type, statement, new StatementHandler(statement, sql, monitor));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(MonitoredJdbc.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "Monitored " + target;
+                    default -> handler.invoke(proxy, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private final StatementMonitor monitor;
+        private String[] parameterTypes = NO_PARAMETERS;
+        private int batchSize;
+        private String batchSql;
+
+        private StatementHandler(Statement statement, String preparedSql, StatementMonitor monitor) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index
+                    && method.getDeclaringClass() != Statement.class) {
+                parameter(index, name, args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameterTypes = NO_PARAMETERS;
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                if (args != null && args.length == 1 && batchSql == null) {
+                    batchSql = (String) args[0];
+                }
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+                batchSql = null;
+            }
+            return MonitoredJdbc.invoke(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            boolean batch = method.getName().startsWith("executeBatch")
+                    || method.getName().equals("executeLargeBatch");
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s
+                    : preparedSql != null ? preparedSql : batchSql;
+            int rows = batchSize;
+            long start = System.nanoTime();
+            try {
+                return MonitoredJdbc.invoke(statement, method, args);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                StatementMonitor.Kind kind = batch ? StatementMonitor.Kind.BATCH
+                        : method.getName().contains("Query") ? StatementMonitor.Kind.QUERY
+                        : StatementMonitor.Kind.UPDATE;
+                monitor.executed(kind, sql != null ? sql : "<unknown>", parameterTypes, rows, nanos);
+                if (batch) {
+                    batchSize = 0;
+                    batchSql = null;
+                }
+            }
+        }
+
+        private void parameter(int index, String setter, Object value) {
+            if (index < 1 || index > 10_000) {
+                return;
+            }
+            if (index > parameterTypes.length) {
+                parameterTypes = Arrays.copyOf(parameterTypes, index);
+            }
+            parameterTypes[index - 1] = switch (setter) {
+                case "setNull" -> "null";
+                case "setObject" -> value != null ? value.getClass().getSimpleName() : "null";
+                default -> setter.substring(3);
+            };
+        }
+    }
+}
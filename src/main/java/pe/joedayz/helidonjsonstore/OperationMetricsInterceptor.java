@@ -0,0 +1,122 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every {@link Measured} method, tagged {@code operation=Class.method}:
+ * <ul>
+ *   <li>{@code persistence.operation} timer, including the commit when the method is
+ *       transactional (this interceptor runs outside {@code @Transactional})</li>
+ *   <li>{@code persistence.operation.failures} counter</li>
+ *   <li>{@code persistence.operation.rows} histogram and {@code persistence.rows.returned}
+ *       counter for methods returning a collection, map, optional or page</li>
+ * </ul>
+ * The metrics of each method are looked up once and cached, so a call costs two
+ * {@code nanoTime()} reads and a few metric updates. The cache belongs to the
+ * interceptor instance, which lives as long as the bean it intercepts, so a restarted
+ * container registers its metrics in its own registry.
+ */
+@Measured
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 100)
+public class OperationMetricsInterceptor {
+
+    private final Map<Method, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @AroundInvoke
+    Object measure(InvocationContext context) throws Exception {
+        OperationMetrics metrics = this.metrics.computeIfAbsent(context.getMethod(), this::register);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = context.proceed();
+            failed = false;
+            metrics.rows(result);
+            return result;
+        } finally {
+            metrics.timer.update(Duration.ofNanos(System.nanoTime() - start));
+            if (failed) {
+                metrics.failures.inc();
+            }
+        }
+    }
+
+    private OperationMetrics register(Method method) {
+        Tag operation = new Tag("operation", method.getDeclaringClass().getSimpleName() + "." + method.getName());
+        Timer timer = metricRegistry.timer(Metadata.builder()
+                .withName("persistence.operation")
+                .withDescription("Duration of service and repository calls, commit included")
+                .build(), operation);
+        Counter failures = metricRegistry.counter(Metadata.builder()
+                .withName("persistence.operation.failures")
+                .withDescription("Service and repository calls that threw")
+                .build(), operation);
+        if (!returnsRows(method.getReturnType())) {
+            return new OperationMetrics(timer, failures, null, null);
+        }
+        Histogram rows = metricRegistry.histogram(Metadata.builder()
+                .withName("persistence.operation.rows")
+                .withDescription("Rows returned per call")
+                .withUnit(MetricUnits.NONE)
+                .build(), operation);
+        Counter rowsReturned = metricRegistry.counter(Metadata.builder()
+                .withName("persistence.rows.returned")
+                .withDescription("Total rows returned")
+                .build(), operation);
+        return new OperationMetrics(timer, failures, rows, rowsReturned);
+    }
+
+    static boolean returnsRows(Class<?> type) {
+        return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)
+                || type == Optional.class || type == ExpensePage.class || type == ExpenseView.Page.class
+                || type == ExpenseQuery.Result.class;
+    }
+
+    /**
+     * Rows in a result of a type accepted by {@link #returnsRows}, 0 otherwise.
+     */
+    static long rowCount(Object result) {
+        return switch (result) {
+            case Collection<?> c -> c.size();
+            case Map<?, ?> m -> m.size();
+            case Optional<?> o -> o.isPresent() ? 1 : 0;
+            case ExpensePage p -> p.getItems().size();
+            case ExpenseView.Page p -> p.items().size();
+            case ExpenseQuery.Result r -> r.items().size();
+            case null, default -> 0;
+        };
+    }
+
+    private record OperationMetrics(Timer timer, Counter failures, Histogram rows, Counter rowsReturned) {
+
+        void rows(Object result) {
+            if (rows == null) {
+                return;
+            }
+            long count = rowCount(result);
+            rows.update(count);
+            rowsReturned.inc(count);
+        }
+    }
+}
@@ -1,31 +1,129 @@
 package pe.joedayz.helidonjsonstore;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
+import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
 import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 @Transactional
+@Measured
 public class OracleJsonService {
 
+    static final String HINT_FETCH_SIZE = "org.hibernate.fetchSize";
+    static final String HINT_READ_ONLY = "org.hibernate.readOnly";
+    // seconds, applied by Hibernate through Statement.setQueryTimeout
+    static final String HINT_TIMEOUT = "org.hibernate.timeout";
+
+    // keyset page filters, shared with QueryPlanCheck
+    static final String BY_CATEGORY = "e.category = :category";
+    static final String BY_METHOD = "e.method = :method";
+
+    // well below Oracle's 1000-element IN-list limit
+    static final int ID_CHUNK_SIZE = 500;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Inject
+    private Event<ExpenseChange> expenseChanges;
+
+    @Inject
+    private ExpenseNearCache nearCache;
+
+    @Inject
+    private DescriptionTrigramIndex trigramIndex;
+
+    @Inject
+    private AmountIndex amountIndex;
+
+    @Inject
+    @ConfigProperty(name = "app.pagination.default-limit", defaultValue = "50")
+    private int defaultPageSize;
+
+    @Inject
+    @ConfigProperty(name = "app.pagination.max-limit", defaultValue = "500")
+    private int maxPageSize;
+
+    @Inject
+    @ConfigProperty(name = "app.export.fetch-size", defaultValue = "500")
+    private int exportFetchSize;
+
+    /**
+     * Insert a new expense. Unlike {@link #save(Expense)} this never goes through
+     * {@code merge()}, so there is no SELECT by primary key before the INSERT.
+     * The insert is flushed here so a duplicate id surfaces as
+     * {@link DuplicateExpenseException} instead of failing at commit.
+     */
+    public Expense create(Expense expense) {
+        assignDefaults(expense);
+        try {
+            entityManager.persist(expense);
+            entityManager.flush();
+        } catch (EntityExistsException e) {
+            throw new DuplicateExpenseException(expense.getId(), e);
+        } catch (PersistenceException e) {
+            if (isDuplicateKey(e)) {
+                throw new DuplicateExpenseException(expense.getId(), e);
+            }
+            throw e;
+        }
+        expenseChanges.fire(ExpenseChange.created(expense));
+        return expense;
+    }
+
+    /**
+     * Insert several new expenses in one transaction. The INSERTs are flushed together,
+     * so with {@code hibernate.jdbc.batch_size} set they reach the database as JDBC
+     * batches. Any failure, such as a duplicate id, rolls back the whole group.
+     */
+    public List<Expense> createAll(List<Expense> expenses) {
+        for (Expense expense : expenses) {
+            assignDefaults(expense);
+            entityManager.persist(expense);
+        }
+        entityManager.flush();
+        expenses.forEach(expense -> expenseChanges.fire(ExpenseChange.created(expense)));
+        return expenses;
+    }
+
     /**
      * Save expense using Oracle JSON Store capabilities
      */
     public Expense save(Expense expense) {
+        if (expense.getCreatedAt() == null) {
+            // keyset pagination orders by created_at, rows without it would never be reached
+            expense.setCreatedAt(LocalDateTime.now());
+        }
         if (expense.getId() == null) {
             entityManager.persist(expense);
+            expenseChanges.fire(ExpenseChange.created(expense));
             return expense;
         } else {
-            return entityManager.merge(expense);
+            return mergeAndNotify(expense);
         }
     }
 
@@ -33,8 +131,47 @@ public class OracleJsonService {
      * Find expense by ID
      */
     public Optional<Expense> findById(String id) {
-        Expense expense = entityManager.find(Expense.class, id);
-        return Optional.ofNullable(expense);
+        return nearCache.get(id, key -> entityManager.find(Expense.class, key));
+    }
+
+    /**
+     * Find many expenses by id: near cache hits first, the rest through one
+     * {@link #findByIds} batch. Returns the expenses found, keyed by id.
+     */
+    public Map<String, Expense> findAllById(Collection<String> ids) {
+        return nearCache.getAll(ids, missing -> {
+            Map<String, Expense> loaded = new HashMap<>(missing.size() * 2);
+            findByIds(missing).forEach(e -> loaded.put(e.getId(), e));
+            return loaded;
+        });
+    }
+
+    /**
+     * Load the given expenses with one IN-list query per {@value #ID_CHUNK_SIZE} ids,
+     * returned in the order of {@code ids}. Missing ids are skipped.
+     */
+    public List<Expense> findByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, Expense> found = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += ID_CHUNK_SIZE) {
+            List<String> chunk = distinct.subList(from, Math.min(from + ID_CHUNK_SIZE, distinct.size()));
+            entityManager.createQuery("SELECT e FROM Expense e WHERE e.id IN :ids", Expense.class)
+                    .setParameter("ids", chunk)
+                    .setHint(HINT_READ_ONLY, true)
+                    .getResultList()
+                    .forEach(e -> found.put(e.getId(), e));
+        }
+        List<Expense> ordered = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Expense expense = found.get(id);
+            if (expense != null) {
+                ordered.add(expense);
+            }
+        }
+        return ordered;
     }
 
     /**
@@ -76,6 +213,58 @@ public class OracleJsonService {
         return query.getResultList();
     }
 
+    /**
+     * Find expenses by amount range, highest amount first, skipping {@code offset}
+     * rows and returning at most {@code limit}. Served from {@link AmountIndex} when it
+     * is built, with the matching ids loaded in one batch.
+     */
+    public List<Expense> findByAmountRange(double minAmount, double maxAmount, Integer offset, Integer limit) {
+        return amountRange(minAmount, maxAmount, offset != null ? Math.max(0, offset) : 0, pageSize(limit));
+    }
+
+    private List<Expense> amountRange(double minAmount, double maxAmount, int skip, int size) {
+        if (amountIndex.isReady()) {
+            return amountRangeFromIndex(minAmount, maxAmount, skip, size, new ArrayList<>());
+        }
+        return entityManager.createQuery(amountRangeQuery("e"), Expense.class)
+                .setParameter("minAmount", minAmount)
+                .setParameter("maxAmount", maxAmount)
+                .setFirstResult(skip)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    /**
+     * Up to {@code size} expenses in the range, reading {@link AmountIndex} from entry
+     * {@code skip}. The loaded rows are re-checked in case they changed after the index
+     * was consulted; rows that no longer match are replaced from further entries until
+     * {@code size} match or the index runs out. For each row returned, {@code ends}
+     * receives the index position just past it, so offsets count index entries.
+     */
+    private List<Expense> amountRangeFromIndex(double minAmount, double maxAmount, int skip, int size,
+                                               List<Integer> ends) {
+        List<Expense> matched = new ArrayList<>(size);
+        int position = skip;
+        while (matched.size() < size) {
+            int wanted = size - matched.size();
+            List<String> ids = amountIndex.rangeDescending(minAmount, maxAmount, position, wanted);
+            Map<String, Expense> loaded = new HashMap<>(ids.size() * 2);
+            findByIds(ids).forEach(e -> loaded.put(e.getId(), e));
+            for (String id : ids) {
+                position++;
+                Expense expense = loaded.get(id);
+                if (expense != null && expense.getAmount() >= minAmount && expense.getAmount() <= maxAmount) {
+                    matched.add(expense);
+                    ends.add(position);
+                }
+            }
+            if (ids.size() < wanted) {
+                break;
+            }
+        }
+        return matched;
+    }
+
     /**
      * Find expenses by description using Oracle JSON text search
      */
@@ -86,6 +275,174 @@ public class OracleJsonService {
         return query.getResultList();
     }
 
+    /**
+     * Page through all expenses, newest first
+     */
+    public ExpensePage findPage(PageCursor after, Integer limit) {
+        return page(null, Map.of(), after, limit, null);
+    }
+
+    /**
+     * Page through expenses of a category, newest first
+     */
+    public ExpensePage findPageByCategory(String category, PageCursor after, Integer limit) {
+        return findPageByCategory(category, after, limit, null);
+    }
+
+    /**
+     * Page through expenses of a category, newest first, letting the database abort the
+     * query once {@code timeout} has passed ({@code null} for no limit).
+     */
+    public ExpensePage findPageByCategory(String category, PageCursor after, Integer limit, Duration timeout) {
+        return page(BY_CATEGORY, Map.of("category", category), after, limit, timeout);
+    }
+
+    /**
+     * Page through expenses paid with a method, newest first
+     */
+    public ExpensePage findPageByMethod(String method, PageCursor after, Integer limit) {
+        return page(BY_METHOD, Map.of("method", method), after, limit, null);
+    }
+
+    /**
+     * Page through expenses whose description contains the given text, newest first
+     */
+    public ExpensePage findPageByDescriptionContaining(String description, PageCursor after, Integer limit) {
+        if (trigramIndex.isReady() && DescriptionTrigramIndex.isSearchable(description)) {
+            DescriptionTrigramIndex.Hits hits = trigramIndex.search(description, after, pageSize(limit));
+            String needle = DescriptionTrigramIndex.normalize(description);
+            // re-check on the loaded rows in case they changed after the index was consulted
+            List<Expense> items = findByIds(hits.ids()).stream()
+                    .filter(e -> e.getDescription() != null
+                            && DescriptionTrigramIndex.normalize(e.getDescription()).contains(needle))
+                    .toList();
+            return new ExpensePage(items, hits.next());
+        }
+        return page("LOWER(e.description) LIKE LOWER(:description)",
+                Map.of("description", "%" + description + "%"), after, limit, null);
+    }
+
+    /**
+     * Read-only variants of the list queries behind the REST endpoints. They select only
+     * the {@code fields} columns into {@link ExpenseView}s and run without a transaction,
+     * so no entity is instantiated, snapshotted or dirty-checked.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ExpenseView.Page findViewPage(Set<ExpenseField> fields, PageCursor after, Integer limit) {
+        return viewPage(fields, null, Map.of(), after, limit);
+    }
+
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ExpenseView.Page findViewPageByCategory(String category, Set<ExpenseField> fields,
+                                                   PageCursor after, Integer limit) {
+        return viewPage(fields, BY_CATEGORY, Map.of("category", category), after, limit);
+    }
+
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ExpenseView.Page findViewPageByMethod(String method, Set<ExpenseField> fields,
+                                                 PageCursor after, Integer limit) {
+        return viewPage(fields, BY_METHOD, Map.of("method", method), after, limit);
+    }
+
+    /**
+     * Index-backed searches load the (few) matching rows by id and project them.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ExpenseView.Page findViewPageByDescriptionContaining(String description, Set<ExpenseField> fields,
+                                                                PageCursor after, Integer limit) {
+        if (trigramIndex.isReady() && DescriptionTrigramIndex.isSearchable(description)) {
+            ExpensePage page = findPageByDescriptionContaining(description, after, limit);
+            return new ExpenseView.Page(views(page.getItems(), fields), page.getNext());
+        }
+        return viewPage(fields, "LOWER(e.description) LIKE LOWER(:description)",
+                Map.of("description", "%" + description + "%"), after, limit);
+    }
+
+    /**
+     * One page of the amount range, highest amount first. An omitted {@code limit} is
+     * the default page size, never "all rows", so the result carries the offset of the
+     * next page ({@code null} on the last one) like the amount orders of {@link #query}.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ExpenseQuery.Result findViewsByAmountRange(double minAmount, double maxAmount, Set<ExpenseField> fields,
+                                                      Integer offset, Integer limit) {
+        int size = pageSize(limit);
+        int skip = offset != null ? Math.max(0, offset) : 0;
+        List<ExpenseView> rows;
+        if (amountIndex.isReady()) {
+            List<Integer> ends = new ArrayList<>(size + 1);
+            rows = views(amountRangeFromIndex(minAmount, maxAmount, skip, size + 1, ends), fields);
+            if (rows.size() > size) {
+                // the next page starts after the index entries this one consumed
+                return new ExpenseQuery.Result(rows.subList(0, size), null, ends.get(size - 1));
+            }
+        } else {
+            rows = entityManager.createQuery(amountRangeQuery(selectList(fields)), Object[].class)
+                    .setParameter("minAmount", minAmount)
+                    .setParameter("maxAmount", maxAmount)
+                    .setFirstResult(skip)
+                    .setMaxResults(size + 1)
+                    .getResultList().stream().map(row -> view(row, fields)).toList();
+        }
+        if (rows.size() <= size) {
+            return new ExpenseQuery.Result(rows, null, null);
+        }
+        return new ExpenseQuery.Result(rows.subList(0, size), null, skip + size);
+    }
+
+    /**
+     * Run a composable {@link ExpenseQuery} as a single statement. Newest/oldest orders
+     * page by keyset from {@code after}; amount orders page by {@code offset}.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ExpenseQuery.Result query(ExpenseQuery criteria, Set<ExpenseField> fields, PageCursor after,
+                                     Integer offset, Integer limit) {
+        int size = pageSize(limit);
+        boolean keyset = criteria.sort().keyset();
+        int first = !keyset && offset != null ? Math.max(0, offset) : 0;
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                criteria.jpql(selectList(fields), keyset && after != null), Object[].class);
+        criteria.bind(query::setParameter);
+        if (keyset && after != null) {
+            query.setParameter("afterCreatedAt", after.getCreatedAt());
+            query.setParameter("afterId", after.getId());
+        }
+        query.setFirstResult(first).setMaxResults(size + 1);
+
+        List<ExpenseView> rows = query.getResultList().stream().map(row -> view(row, fields)).toList();
+        if (rows.size() <= size) {
+            return new ExpenseQuery.Result(rows, null, null);
+        }
+        List<ExpenseView> items = rows.subList(0, size);
+        ExpenseView last = items.get(size - 1);
+        return keyset
+                ? new ExpenseQuery.Result(items, new PageCursor(last.createdAt(), last.id()), null)
+                : new ExpenseQuery.Result(items, null, first + size);
+    }
+
+    /**
+     * Stream every expense through {@code action} without building a result list.
+     * Rows come from a forward-only cursor fetched {@code app.export.fetch-size} at a
+     * time and are detached right after the callback, so the persistence context
+     * never grows. Returns the number of rows visited.
+     */
+    public long streamAll(Consumer<Expense> action) {
+        TypedQuery<Expense> query = entityManager.createQuery("SELECT e FROM Expense e", Expense.class);
+        query.setHint(HINT_FETCH_SIZE, exportFetchSize);
+        query.setHint(HINT_READ_ONLY, true);
+        long count = 0;
+        try (Stream<Expense> rows = query.getResultStream()) {
+            Iterator<Expense> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Expense expense = iterator.next();
+                action.accept(expense);
+                entityManager.detach(expense);
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Get total expenses by category
      */
@@ -109,21 +466,24 @@ public class OracleJsonService {
     }
 
     /**
-     * Get expenses statistics
+     * Get expenses statistics in a single pass over the table
      */
     public ExpenseStatistics getStatistics() {
-        // Total count
-        Query countQuery = entityManager.createQuery("SELECT COUNT(e) FROM Expense e");
-        Long totalCount = (Long) countQuery.getSingleResult();
-        
-        // Total amount
-        Query amountQuery = entityManager.createQuery("SELECT SUM(e.amount) FROM Expense e");
-        Double totalAmount = (Double) amountQuery.getSingleResult();
-        
-        // Average amount
-        Query avgQuery = entityManager.createQuery("SELECT AVG(e.amount) FROM Expense e");
-        Double avgAmount = (Double) avgQuery.getSingleResult();
-        
+        return getStatistics(null);
+    }
+
+    /**
+     * Get expenses statistics, letting the database abort the query once {@code timeout}
+     * has passed ({@code null} for no limit).
+     */
+    public ExpenseStatistics getStatistics(Duration timeout) {
+        Query query = entityManager.createQuery("SELECT COUNT(e), SUM(e.amount), AVG(e.amount) FROM Expense e");
+        applyTimeout(query, timeout);
+        Object[] row = (Object[]) query.getSingleResult();
+        Long totalCount = (Long) row[0];
+        Double totalAmount = (Double) row[1];
+        Double avgAmount = (Double) row[2];
+
         return new ExpenseStatistics(
             totalCount != null ? totalCount : 0L,
             totalAmount != null ? totalAmount : 0.0,
@@ -131,21 +491,307 @@ public class OracleJsonService {
         );
     }
 
+    /**
+     * Count and total amount per (category, method) pair, as {@code [category, method, count, sum]}
+     */
+    public List<Object[]> getTotalsByCategoryAndMethod() {
+        return entityManager.createQuery(
+            "SELECT e.category, e.method, COUNT(e), SUM(e.amount) FROM Expense e GROUP BY e.category, e.method",
+            Object[].class).getResultList();
+    }
+
     /**
      * Delete expense by ID
      */
     public void deleteById(String id) {
+        deleteById(id, null);
+    }
+
+    /**
+     * Delete expense by ID with a single DELETE guarded by the version of the
+     * before-image handed to listeners (see {@link #currentForWrite}). When
+     * {@code expectedVersion} is given the row is only removed if it still has that version.
+     */
+    public WriteResult deleteById(String id, Long expectedVersion) {
+        Expense before = currentForWrite(id);
+        for (boolean fresh = false; ; fresh = true) {
+            if (before == null || (expectedVersion != null && before.getVersion() != expectedVersion)) {
+                if (fresh) {
+                    return before == null ? WriteResult.notFound() : WriteResult.versionMismatch();
+                }
+            } else {
+                int deleted = entityManager.createQuery(
+                    "DELETE FROM Expense e WHERE e.id = :id AND e.version = :version")
+                        .setParameter("id", id)
+                        .setParameter("version", before.getVersion())
+                        .executeUpdate();
+                if (deleted == 1) {
+                    expenseChanges.fire(ExpenseChange.deleted(before));
+                    return WriteResult.applied(null);
+                }
+            }
+            before = reread(id);
+        }
+    }
+
+    /**
+     * Update the mutable fields of an expense and bump its version with a single UPDATE
+     * guarded by the version of the before-image handed to listeners (see
+     * {@link #currentForWrite}). {@code createdAt} is kept, as in
+     * {@link Expense#update(Expense)}. When {@code expectedVersion} is given the row is
+     * only updated if it still has that version.
+     */
+    public WriteResult update(String id, Expense changes, Long expectedVersion) {
+        Expense before = currentForWrite(id);
+        for (boolean fresh = false; ; fresh = true) {
+            if (before == null || (expectedVersion != null && before.getVersion() != expectedVersion)) {
+                if (fresh) {
+                    return before == null ? WriteResult.notFound() : WriteResult.versionMismatch();
+                }
+            } else {
+                long newVersion = before.getVersion() + 1;
+                int updated = entityManager.createQuery(
+                    "UPDATE Expense e SET e.amount = :amount, e.method = :method, e.category = :category,"
+                        + " e.description = :description, e.version = :newVersion"
+                        + " WHERE e.id = :id AND e.version = :version")
+                        .setParameter("amount", changes.getAmount())
+                        .setParameter("method", changes.getMethod())
+                        .setParameter("category", changes.getCategory())
+                        .setParameter("description", changes.getDescription())
+                        .setParameter("newVersion", newVersion)
+                        .setParameter("id", id)
+                        .setParameter("version", before.getVersion())
+                        .executeUpdate();
+                if (updated == 1) {
+                    Expense after = new Expense(id, changes.getAmount(), changes.getMethod(), changes.getCategory(),
+                            before.getCreatedAt(), changes.getDescription());
+                    after.setVersion(newVersion);
+                    expenseChanges.fire(ExpenseChange.updated(before, after));
+                    return WriteResult.applied(newVersion);
+                }
+            }
+            before = reread(id);
+        }
+    }
+
+    /**
+     * Before-image for a conditional write, without a lock: from the near cache when
+     * the row was read recently, otherwise one plain SELECT. It may be stale; the write
+     * only applies if the row still has its version. Otherwise the row is read again
+     * and the write retried, or refused once a fresh read shows it missing or at
+     * another version than expected.
+     */
+    private Expense currentForWrite(String id) {
+        return nearCache.get(id, this::findDetached).orElse(null);
+    }
+
+    /**
+     * The row as it is now, after a write that did not apply or a before-image that
+     * may have been stale.
+     */
+    private Expense reread(String id) {
+        nearCache.invalidate(id);
+        return findDetached(id);
+    }
+
+    private Expense findDetached(String id) {
         Expense expense = entityManager.find(Expense.class, id);
         if (expense != null) {
-            entityManager.remove(expense);
+            entityManager.detach(expense);
         }
+        return expense;
     }
 
     /**
      * Update expense
      */
     public Expense update(Expense expense) {
-        return entityManager.merge(expense);
+        return mergeAndNotify(expense);
+    }
+
+    /**
+     * merge() loads the current row anyway; finding it first lets merge reuse it from
+     * the persistence context, so the before-image for listeners costs no extra SELECT.
+     */
+    private Expense mergeAndNotify(Expense expense) {
+        Expense before = ExpenseChange.snapshot(entityManager.find(Expense.class, expense.getId()));
+        Expense merged = entityManager.merge(expense);
+        expenseChanges.fire(before == null ? ExpenseChange.created(merged) : ExpenseChange.updated(before, merged));
+        return merged;
+    }
+
+    /**
+     * Give a new expense a random id and the current time unless the caller set them.
+     */
+    private static void assignDefaults(Expense expense) {
+        if (expense.getId() == null) {
+            expense.setId(UUID.randomUUID().toString());
+        }
+        if (expense.getCreatedAt() == null) {
+            expense.setCreatedAt(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Unique constraint violation: SQLState 23505 (H2, PostgreSQL) or ORA-00001.
+     */
+    private static boolean isDuplicateKey(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql) {
+                return "23505".equals(sql.getSQLState())
+                        || ("23000".equals(sql.getSQLState()) && sql.getErrorCode() == 1);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Clamp a requested page size to the configured default and maximum.
+     */
+    int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    private ExpenseView.Page viewPage(Set<ExpenseField> fields, String filter, Map<String, Object> params,
+                                      PageCursor after, Integer limit) {
+        int size = pageSize(limit);
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                keysetQuery(selectList(fields), filter, after), Object[].class);
+        params.forEach(query::setParameter);
+        if (after != null) {
+            query.setParameter("afterCreatedAt", after.getCreatedAt());
+            query.setParameter("afterId", after.getId());
+        }
+        query.setMaxResults(size + 1);
+
+        List<ExpenseView> rows = query.getResultList().stream().map(row -> view(row, fields)).toList();
+        if (rows.size() <= size) {
+            return new ExpenseView.Page(rows, null);
+        }
+        List<ExpenseView> items = rows.subList(0, size);
+        ExpenseView last = items.get(size - 1);
+        return new ExpenseView.Page(items, new PageCursor(last.createdAt(), last.id()));
+    }
+
+    /**
+     * JPQL select list for {@code fields}, in {@link ExpenseField} order; id and
+     * created_at always come first since the cursor needs them.
+     */
+    static String selectList(Set<ExpenseField> fields) {
+        StringBuilder select = new StringBuilder("e.id, e.createdAt");
+        for (ExpenseField field : fields) {
+            if (field != ExpenseField.ID && field != ExpenseField.CREATED_AT) {
+                select.append(", e.").append(field.property());
+            }
+        }
+        return select.toString();
+    }
+
+    static String amountRangeQuery(String select) {
+        return "SELECT " + select + " FROM Expense e"
+                + " WHERE e.amount BETWEEN :minAmount AND :maxAmount"
+                + " ORDER BY e.amount DESC, e.id DESC";
+    }
+
+    private static ExpenseView view(Object[] row, Set<ExpenseField> fields) {
+        Double amount = null;
+        String method = null;
+        String category = null;
+        String description = null;
+        Long version = null;
+        int column = 2;
+        for (ExpenseField field : fields) {
+            switch (field) {
+                case AMOUNT -> amount = (Double) row[column++];
+                case METHOD -> method = (String) row[column++];
+                case CATEGORY -> category = (String) row[column++];
+                case DESCRIPTION -> description = (String) row[column++];
+                case VERSION -> version = (Long) row[column++];
+                case ID, CREATED_AT -> { }
+            }
+        }
+        return new ExpenseView((String) row[0], amount, method, category, (LocalDateTime) row[1], description, version);
+    }
+
+    private static List<ExpenseView> views(List<Expense> expenses, Set<ExpenseField> fields) {
+        return expenses.stream().map(e -> ExpenseView.of(e, fields)).toList();
+    }
+
+    /**
+     * Keyset page statement: {@code filter} (may be {@code null}) and, with {@code after},
+     * the cursor condition on {@code :afterCreatedAt}/{@code :afterId}. Also explained by
+     * {@link QueryPlanCheck}.
+     */
+    static String keysetQuery(String select, String filter, PageCursor after) {
+        StringBuilder jpql = new StringBuilder("SELECT ").append(select).append(" FROM Expense e WHERE 1 = 1");
+        if (filter != null) {
+            jpql.append(" AND ").append(filter);
+        }
+        if (after != null) {
+            jpql.append(" AND (e.createdAt < :afterCreatedAt"
+                    + " OR (e.createdAt = :afterCreatedAt AND e.id < :afterId))");
+        }
+        return jpql.append(" ORDER BY e.createdAt DESC, e.id DESC").toString();
+    }
+
+    /**
+     * Keyset page over (created_at DESC, id DESC). Fetches one extra row to know
+     * whether another page exists, so the cost is bounded by the page size rather
+     * than by the position in the table.
+     */
+    private ExpensePage page(String filter, Map<String, Object> params, PageCursor after, Integer limit,
+                             Duration timeout) {
+        int size = pageSize(limit);
+        TypedQuery<Expense> query = entityManager.createQuery(keysetQuery("e", filter, after), Expense.class);
+        applyTimeout(query, timeout);
+        params.forEach(query::setParameter);
+        if (after != null) {
+            query.setParameter("afterCreatedAt", after.getCreatedAt());
+            query.setParameter("afterId", after.getId());
+        }
+        query.setMaxResults(size + 1);
+
+        List<Expense> rows = query.getResultList();
+        if (rows.size() <= size) {
+            return new ExpensePage(rows, null);
+        }
+        List<Expense> items = rows.subList(0, size);
+        return new ExpensePage(items, PageCursor.after(items.get(size - 1)));
+    }
+
+    /**
+     * JDBC query timeouts are whole seconds: round up, and never below one second
+     * since zero would mean no timeout at all.
+     */
+    private static void applyTimeout(Query query, Duration timeout) {
+        if (timeout != null) {
+            query.setHint(HINT_TIMEOUT, (int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        }
+    }
+
+    /**
+     * Outcome of a conditional write.
+     */
+    public enum WriteStatus { APPLIED, NOT_FOUND, VERSION_MISMATCH }
+
+    /**
+     * Result of an update or delete; {@code version} is the new version when known.
+     */
+    public record WriteResult(WriteStatus status, Long version) {
+        static WriteResult applied(Long version) {
+            return new WriteResult(WriteStatus.APPLIED, version);
+        }
+
+        static WriteResult notFound() {
+            return new WriteResult(WriteStatus.NOT_FOUND, null);
+        }
+
+        static WriteResult versionMismatch() {
+            return new WriteResult(WriteStatus.VERSION_MISMATCH, null);
+        }
     }
 
     /**
@@ -0,0 +1,34 @@
+package pe.joedayz.helidonjsonstore;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one {@link Measured} service or repository call. Its duration covers
+ * the method body inside the transaction, not the commit.
+ */
+@Name("pe.joedayz.helidonjsonstore.PersistenceOperation")
+@Label("Persistence Operation")
+@Description("Call of an OracleJsonService or ExpenseRepository method")
+@Category({"Helidon JSON Store", "Persistence"})
+@StackTrace(false)
+class PersistenceOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    @Description("Rows returned, -1 if the method does not return rows")
+    long rows;
+
+    @Label("Transaction")
+    @Description("JTA transaction key, null outside a transaction")
+    String transactionId;
+
+    @Label("Failed")
+    boolean failed;
+}
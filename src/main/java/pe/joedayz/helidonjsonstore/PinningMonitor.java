@@ -0,0 +1,247 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Always-on, in-process JFR recording. It captures {@code jdk.VirtualThreadPinned}
+ * (a virtual thread that blocked while pinned to its carrier, typically inside
+ * {@code synchronized} in a driver or Hibernate) plus the application's
+ * {@link PersistenceOperationEvent}s above {@code app.jfr.operation-threshold-ms} and
+ * every {@link IngestionBatchEvent}, keeping the last {@code app.jfr.max-age-minutes}.
+ * <p>
+ * Pinned events are aggregated by the first {@code app.jfr.stack-depth} frames below
+ * the parking code, which gives the pinning hotspots served by
+ * {@code /diagnostics/pinning}.
+ * <p>
+ * Dumps go to one file, {@value #DUMP_FILE} in {@code app.jfr.dump-dir} (the temp
+ * directory by default), replaced on every dump and deleted on shutdown; dumps left
+ * there by earlier runs are removed at startup.
+ */
+@ApplicationScoped
+public class PinningMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(PinningMonitor.class.getName());
+
+    static final String VIRTUAL_THREAD_PINNED = "jdk.VirtualThreadPinned";
+    static final String DUMP_FILE = "helidon-jsonstore.jfr";
+    private static final String OLD_DUMPS = "helidon-jsonstore-*.jfr";
+    private static final int MAX_HOTSPOTS = 500;
+    private static final String OTHER = "<other>";
+    // frames of the parking machinery itself, on top of every pinned stack
+    private static final List<String> PARKING_FRAMES = List.of(
+            "jdk.internal.", "java.lang.VirtualThread", "java.lang.System$", "java.util.concurrent.locks.LockSupport");
+
+    @Inject
+    @ConfigProperty(name = "app.jfr.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "app.jfr.pinned-threshold-ms", defaultValue = "20")
+    private long pinnedThresholdMillis;
+
+    @Inject
+    @ConfigProperty(name = "app.jfr.operation-threshold-ms", defaultValue = "10")
+    private long operationThresholdMillis;
+
+    @Inject
+    @ConfigProperty(name = "app.jfr.stack-depth", defaultValue = "8")
+    private int stackDepth;
+
+    @Inject
+    @ConfigProperty(name = "app.jfr.max-age-minutes", defaultValue = "10")
+    private long maxAgeMinutes;
+
+    @Inject
+    @ConfigProperty(name = "app.jfr.dump-dir")
+    private Optional<String> dumpDir;
+
+    private final Map<String, Hotspot> hotspots = new ConcurrentHashMap<>();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final Object dumpLock = new Object();
+    private volatile RecordingStream stream;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        RecordingStream recording = new RecordingStream();
+        recording.enable(VIRTUAL_THREAD_PINNED)
+                .withStackTrace()
+                .withThreshold(Duration.ofMillis(pinnedThresholdMillis));
+        recording.enable(PersistenceOperationEvent.class)
+                .withThreshold(Duration.ofMillis(operationThresholdMillis));
+        recording.enable(IngestionBatchEvent.class);
+        recording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+        recording.onEvent(VIRTUAL_THREAD_PINNED, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+        deleteOldDumps();
+        LOGGER.info(() -> "JFR monitoring started, pinned threshold " + pinnedThresholdMillis + " ms");
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+            try {
+                Files.deleteIfExists(dumpFile());
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Could not delete " + dumpFile(), e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return stream != null;
+    }
+
+    public long pinnedEvents() {
+        return pinnedEvents.sum();
+    }
+
+    /**
+     * Hotspots by total pinned time, highest first.
+     */
+    public List<PinningHotspot> hotspots(int limit) {
+        return hotspots.values().stream()
+                .map(Hotspot::snapshot)
+                .sorted(Comparator.comparingDouble(PinningHotspot::totalMillis).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public void reset() {
+        hotspots.clear();
+        pinnedEvents.reset();
+    }
+
+    /**
+     * Write the retained recording to the dump file, replacing the previous dump. The
+     * recording is written next to it first and moved into place, so a reader never
+     * sees a partial file.
+     */
+    public Path dump() throws IOException {
+        RecordingStream recording = stream;
+        if (recording == null) {
+            throw new IllegalStateException("JFR monitoring is disabled");
+        }
+        Path file = dumpFile();
+        synchronized (dumpLock) {
+            Path partial = file.resolveSibling(DUMP_FILE + ".part");
+            try {
+                recording.dump(partial);
+                Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        }
+        return file;
+    }
+
+    private Path dumpFile() {
+        return dumpDirectory().resolve(DUMP_FILE);
+    }
+
+    private Path dumpDirectory() {
+        return Path.of(dumpDir.orElseGet(() -> System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Earlier versions wrote every dump to a new temp file and never removed them.
+     */
+    private void deleteOldDumps() {
+        try (DirectoryStream<Path> old = Files.newDirectoryStream(dumpDirectory(), OLD_DUMPS)) {
+            for (Path file : old) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not remove old JFR dumps in " + dumpDirectory(), e);
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        List<String> frames = applicationFrames(event.getStackTrace());
+        String key = String.join("\n", frames);
+        Hotspot hotspot = hotspots.get(key);
+        if (hotspot == null) {
+            hotspot = hotspots.size() < MAX_HOTSPOTS
+                    ? hotspots.computeIfAbsent(key, k -> new Hotspot(frames))
+                    : hotspots.computeIfAbsent(OTHER, k -> new Hotspot(List.of(OTHER)));
+        }
+        hotspot.record(event.getDuration().toNanos());
+    }
+
+    private List<String> applicationFrames(RecordedStackTrace stackTrace) {
+        List<String> frames = new ArrayList<>(stackDepth);
+        if (stackTrace == null) {
+            return frames;
+        }
+        boolean parking = true;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (parking && PARKING_FRAMES.stream().anyMatch(type::startsWith)) {
+                continue;
+            }
+            parking = false;
+            frames.add(type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber());
+            if (frames.size() == stackDepth) {
+                break;
+            }
+        }
+        return frames;
+    }
+
+    private static final class Hotspot {
+        private final List<String> frames;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Hotspot(List<String> frames) {
+            this.frames = frames;
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private PinningHotspot snapshot() {
+            return new PinningHotspot(frames, count.sum(), totalNanos.sum() / 1e6, maxNanos.get() / 1e6);
+        }
+    }
+
+    /**
+     * Pinned time aggregated for one stack, top frame first.
+     */
+    public record PinningHotspot(List<String> frames, long count, double totalMillis, double maxMillis) {
+    }
+}
@@ -0,0 +1,264 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.interceptor.Interceptor;
+import jakarta.persistence.Column;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Explains the statements issued by {@link OracleJsonService} at startup and checks
+ * that each one is served by the index declared for it on {@link Expense}.
+ * Plans are logged; a required index that the plan does not use is logged as a
+ * warning, or fails startup when {@code app.query-plan-check.fail-on-missing-index}
+ * is set. Supports H2 ({@code EXPLAIN}) and Oracle ({@code EXPLAIN PLAN} +
+ * {@code DBMS_XPLAN}); other databases are skipped.
+ * <p>
+ * Shapes are built with the same JPQL builders the service runs ({@code keysetQuery},
+ * {@code amountRangeQuery}, {@link ExpenseQuery}), so a change to a predicate or an
+ * order is checked as soon as it is made. The JPQL is mapped to SQL by renaming the
+ * entity and its properties to the table and its columns, with the parameters left
+ * as bind variables.
+ */
+@ApplicationScoped
+public class QueryPlanCheck {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryPlanCheck.class.getName());
+
+    private static final String STATEMENT_ID = "expenses-plan-check";
+    // default page size plus the row fetched to detect a next page
+    private static final int MAX_ROWS = 51;
+
+    private static final Pattern PROPERTY = Pattern.compile("\\be\\.(\\w+)");
+    private static final Pattern PARAMETER = Pattern.compile(":(\\w+)");
+    private static final Map<String, String> COLUMNS = columns();
+
+    private static final PageCursor CURSOR = new PageCursor(LocalDateTime.of(2024, 1, 1, 0, 0),
+            "00000000-0000-0000-0000-000000000000");
+
+    static final List<Shape> SHAPES = shapes();
+
+    @Inject
+    @Named("ds1")
+    private DataSource dataSource;
+
+    @Inject
+    @ConfigProperty(name = "app.query-plan-check.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "app.query-plan-check.fail-on-missing-index", defaultValue = "false")
+    private boolean failOnMissingIndex;
+
+    // after the default-priority startup observers, which bootstrap the persistence unit and its schema
+    void onStartup(@Observes @Priority(Interceptor.Priority.APPLICATION + 1000)
+                   @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            return;
+        }
+        List<String> missing;
+        try {
+            missing = check();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not explain expense queries", e);
+            return;
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        String message = "Expense queries not using their index: " + String.join("; ", missing);
+        if (failOnMissingIndex) {
+            throw new IllegalStateException(message);
+        }
+        LOGGER.warning(message);
+    }
+
+    /**
+     * Explain every shape and return a description of each required index the plan does not use.
+     */
+    List<String> check() throws SQLException {
+        List<String> missing = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName().toUpperCase(Locale.ROOT);
+            if (!product.contains("H2") && !product.contains("ORACLE")) {
+                LOGGER.info(() -> "Skipping query plan check on " + product);
+                return missing;
+            }
+            for (Shape shape : SHAPES) {
+                String plan = product.contains("H2") ? explainH2(connection, shape)
+                        : explainOracle(connection, shape);
+                LOGGER.info(() -> "Plan for " + shape.name() + ":\n" + plan);
+                boolean usesIndex = plan.toUpperCase(Locale.ROOT).contains(shape.index().toUpperCase(Locale.ROOT));
+                if (!usesIndex && shape.required()) {
+                    missing.add(shape.name() + " (expected " + shape.index() + ")");
+                }
+            }
+        }
+        return missing;
+    }
+
+    private static List<Shape> shapes() {
+        String views = OracleJsonService.selectList(ExpenseField.ALL);
+        List<Shape> shapes = new ArrayList<>();
+        keyset(shapes, "findViewPageByCategory", views, OracleJsonService.BY_CATEGORY,
+                Map.of("category", "FOOD"), ExpenseIndexes.CATEGORY_CREATED, true);
+        keyset(shapes, "findPageByCategory", "e", OracleJsonService.BY_CATEGORY,
+                Map.of("category", "FOOD"), ExpenseIndexes.CATEGORY_CREATED, true);
+        keyset(shapes, "findViewPageByMethod", views, OracleJsonService.BY_METHOD,
+                Map.of("method", "CARD"), ExpenseIndexes.METHOD_CREATED, true);
+        keyset(shapes, "findPageByMethod", "e", OracleJsonService.BY_METHOD,
+                Map.of("method", "CARD"), ExpenseIndexes.METHOD_CREATED, true);
+        // optimizers may prefer a scan + top-N sort on small tables, so only reported
+        keyset(shapes, "findViewPage", views, null, Map.of(), ExpenseIndexes.CREATED, false);
+
+        Map<String, Object> amounts = Map.of("minAmount", 10.0, "maxAmount", 20.0);
+        shapes.add(new Shape("findViewsByAmountRange", OracleJsonService.amountRangeQuery(views), amounts,
+                ExpenseIndexes.AMOUNT, true));
+        shapes.add(new Shape("findByAmountRange", OracleJsonService.amountRangeQuery("e"), amounts,
+                ExpenseIndexes.AMOUNT, true));
+
+        query(shapes, "query?category", new ExpenseQuery("FOOD", null, null, null, null, null, null,
+                ExpenseQuery.Sort.NEWEST), views, ExpenseIndexes.CATEGORY_CREATED);
+        query(shapes, "query?method&sort=oldest", new ExpenseQuery(null, "CARD", null, null, null, null, null,
+                ExpenseQuery.Sort.OLDEST), views, ExpenseIndexes.METHOD_CREATED);
+        query(shapes, "query?minAmount&maxAmount&sort=amount-desc", new ExpenseQuery(null, null, 10.0, 20.0,
+                null, null, null, ExpenseQuery.Sort.AMOUNT_DESC), views, ExpenseIndexes.AMOUNT);
+        return List.copyOf(shapes);
+    }
+
+    /**
+     * A keyset page, both the first page and one continued from a cursor.
+     */
+    private static void keyset(List<Shape> shapes, String name, String select, String filter,
+                               Map<String, Object> parameters, String index, boolean required) {
+        shapes.add(new Shape(name, OracleJsonService.keysetQuery(select, filter, null), parameters, index, required));
+        shapes.add(new Shape(name + " after cursor", OracleJsonService.keysetQuery(select, filter, CURSOR),
+                withCursor(parameters), index, required));
+    }
+
+    private static void query(List<Shape> shapes, String name, ExpenseQuery criteria, String select, String index) {
+        Map<String, Object> parameters = new HashMap<>();
+        criteria.bind(parameters::put);
+        shapes.add(new Shape(name, criteria.jpql(select, false), Map.copyOf(parameters), index, true));
+        if (criteria.sort().keyset()) {
+            shapes.add(new Shape(name + " after cursor", criteria.jpql(select, true), withCursor(parameters),
+                    index, true));
+        }
+    }
+
+    private static Map<String, Object> withCursor(Map<String, Object> parameters) {
+        Map<String, Object> withCursor = new HashMap<>(parameters);
+        withCursor.put("afterCreatedAt", CURSOR.getCreatedAt());
+        withCursor.put("afterId", CURSOR.getId());
+        return Map.copyOf(withCursor);
+    }
+
+    /**
+     * SQL for {@code jpql}: the entity becomes the {@code expenses} table, {@code e.<property>}
+     * its column, and an entity select list all columns. Parameters are kept as named
+     * binds or, with {@code positional}, replaced by {@code ?} in order of appearance.
+     */
+    static String sql(String jpql, boolean positional) {
+        String sql = jpql.replace("SELECT e FROM Expense e ", "SELECT e.* FROM expenses e ")
+                .replace(" FROM Expense e ", " FROM expenses e ");
+        Matcher properties = PROPERTY.matcher(sql);
+        StringBuilder mapped = new StringBuilder();
+        while (properties.find()) {
+            String column = COLUMNS.get(properties.group(1));
+            if (column == null) {
+                throw new IllegalStateException("No column for property '" + properties.group(1) + "' in " + jpql);
+            }
+            properties.appendReplacement(mapped, "e." + column);
+        }
+        properties.appendTail(mapped);
+        sql = mapped.toString();
+        if (positional) {
+            sql = PARAMETER.matcher(sql).replaceAll("?");
+        }
+        return sql + " FETCH FIRST " + MAX_ROWS + " ROWS ONLY";
+    }
+
+    private static String explainH2(Connection connection, Shape shape) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql(shape.jpql(), true))) {
+            Matcher parameters = PARAMETER.matcher(shape.jpql());
+            for (int index = 1; parameters.find(); index++) {
+                statement.setObject(index, shape.parameters().get(parameters.group(1)));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                return lines(rs);
+            }
+        }
+    }
+
+    /**
+     * {@code EXPLAIN PLAN} takes unbound bind variables, so the named parameters stay as they are.
+     */
+    private static String explainOracle(Connection connection, Shape shape) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("EXPLAIN PLAN SET STATEMENT_ID = '" + STATEMENT_ID + "' FOR "
+                    + sql(shape.jpql(), false));
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT plan_table_output FROM TABLE(DBMS_XPLAN.DISPLAY('PLAN_TABLE', '"
+                            + STATEMENT_ID + "', 'BASIC'))")) {
+                return lines(rs);
+            }
+        } finally {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        }
+    }
+
+    private static String lines(ResultSet rs) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        while (rs.next()) {
+            plan.append(rs.getString(1)).append('\n');
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Column name of each mapped {@link Expense} property.
+     */
+    private static Map<String, String> columns() {
+        Map<String, String> columns = new HashMap<>();
+        for (Field field : Expense.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            Column column = field.getAnnotation(Column.class);
+            columns.put(field.getName(), column != null && !column.name().isEmpty() ? column.name() : field.getName());
+        }
+        return Map.copyOf(columns);
+    }
+
+    /**
+     * One statement as the service builds it, sample values for its parameters, the
+     * index it should use and whether a miss is an error.
+     */
+    record Shape(String name, String jpql, Map<String, Object> parameters, String index, boolean required) {
+    }
+}
@@ -0,0 +1,259 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan-out of independent subqueries on virtual threads with a shared deadline.
+ * <p>
+ * A {@link Scope} behaves like a structured task scope: subtasks are forked inside a
+ * try-with-resources block, {@link Scope#join()} waits until all of them finish, a
+ * required one fails, or the deadline passes, and whatever is still running is then
+ * cancelled, so no subtask outlives the request. Optional subtasks may fail or time
+ * out without failing the whole fan-out; their slot is reported instead of a value.
+ * <p>
+ * Cancelling interrupts the subtask's thread, which does not stop a JDBC call already
+ * running. Subtasks that query the database should therefore hand
+ * {@link Scope#remaining()} to the query as its timeout, so the database gives up
+ * around the deadline too and the connection is released.
+ * <p>
+ * {@code java.util.concurrent.StructuredTaskScope} is still a preview API on Java 21,
+ * so the same shape is built on an executor here. The gauge
+ * {@code scatter-gather.subtasks.active} counts subtasks running on it.
+ */
+@ApplicationScoped
+public class ScatterGather {
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger active = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        metricRegistry.gauge(Metadata.builder()
+                        .withName("scatter-gather.subtasks.active")
+                        .withDescription("Scatter-gather subtasks running on virtual threads")
+                        .build(),
+                active, AtomicInteger::get);
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Open a scope whose subtasks must all complete within {@code deadline}.
+     */
+    public Scope open(Duration deadline) {
+        return new Scope(executor, active, deadline);
+    }
+
+    public enum Status {
+        SUCCESS, FAILED, TIMED_OUT, CANCELLED
+    }
+
+    /**
+     * Outcome of one subtask. {@code elapsedMillis} runs from the fork to completion,
+     * or to the moment it was given up on.
+     */
+    public record Result(String name, boolean required, Status status, Object value, String error,
+                         long elapsedMillis) {
+    }
+
+    /**
+     * Outcome of a scope, subtasks in fork order.
+     */
+    public record Outcome(Map<String, Result> results, long elapsedMillis, boolean deadlineExceeded) {
+
+        /**
+         * Whether every required subtask succeeded.
+         */
+        public boolean complete() {
+            return results.values().stream().noneMatch(r -> r.required() && r.status() != Status.SUCCESS);
+        }
+
+        /**
+         * The subtask that took longest, i.e. the one on the critical path.
+         */
+        public String criticalPath() {
+            return results.values().stream()
+                    .max((a, b) -> Long.compare(a.elapsedMillis(), b.elapsedMillis()))
+                    .map(Result::name)
+                    .orElse(null);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T value(String name) {
+            Result result = results.get(name);
+            return result != null ? (T) result.value() : null;
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final ExecutorService executor;
+        private final AtomicInteger active;
+        private final long startNanos = System.nanoTime();
+        private final long deadlineNanos;
+        private final Map<String, Subtask> subtasks = new LinkedHashMap<>();
+        private final BlockingQueue<Subtask> finished = new LinkedBlockingQueue<>();
+        private boolean joined;
+
+        private Scope(ExecutorService executor, AtomicInteger active, Duration deadline) {
+            this.executor = executor;
+            this.active = active;
+            this.deadlineNanos = startNanos + deadline.toNanos();
+        }
+
+        /**
+         * Time left until the deadline, never negative.
+         */
+        public Duration remaining() {
+            return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+        }
+
+        /**
+         * Start a subtask whose failure fails the scope and cancels its siblings.
+         */
+        public void fork(String name, Callable<?> task) {
+            fork(name, task, true);
+        }
+
+        /**
+         * Start a subtask that may fail or time out without failing the scope.
+         */
+        public void forkOptional(String name, Callable<?> task) {
+            fork(name, task, false);
+        }
+
+        private void fork(String name, Callable<?> task, boolean required) {
+            if (joined) {
+                throw new IllegalStateException("Scope already joined");
+            }
+            if (subtasks.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate subtask " + name);
+            }
+            Subtask subtask = new Subtask(name, required);
+            subtasks.put(name, subtask);
+            subtask.future = executor.submit(() -> {
+                Object value = null;
+                Throwable error = null;
+                active.incrementAndGet();
+                try {
+                    value = task.call();
+                } catch (Throwable e) {
+                    error = e;
+                } finally {
+                    active.decrementAndGet();
+                }
+                if (subtask.complete(value, error)) {
+                    finished.add(subtask);
+                }
+                return null;
+            });
+        }
+
+        /**
+         * Wait for the subtasks, up to the deadline, then cancel whatever is left.
+         */
+        public Outcome join() throws InterruptedException {
+            joined = true;
+            int pending = subtasks.size();
+            boolean deadlineExceeded = false;
+            try {
+                while (pending > 0) {
+                    long remaining = deadlineNanos - System.nanoTime();
+                    Subtask done = remaining > 0 ? finished.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (done == null) {
+                        deadlineExceeded = true;
+                        break;
+                    }
+                    pending--;
+                    if (done.required && done.status == Status.FAILED) {
+                        break;
+                    }
+                }
+            } finally {
+                cancelRemaining(deadlineExceeded ? Status.TIMED_OUT : Status.CANCELLED);
+            }
+            Map<String, Result> results = new LinkedHashMap<>();
+            subtasks.values().forEach(s -> results.put(s.name, s.result(startNanos)));
+            return new Outcome(results, (System.nanoTime() - startNanos) / 1_000_000, deadlineExceeded);
+        }
+
+        @Override
+        public void close() {
+            cancelRemaining(Status.CANCELLED);
+        }
+
+        private void cancelRemaining(Status reason) {
+            long now = System.nanoTime();
+            for (Subtask subtask : subtasks.values()) {
+                subtask.cancel(reason, now);
+            }
+        }
+    }
+
+    private static final class Subtask {
+        private final String name;
+        private final boolean required;
+        private volatile Future<?> future;
+        private volatile Status status;
+        private volatile Object value;
+        private volatile Throwable error;
+        private volatile long endNanos;
+
+        private Subtask(String name, boolean required) {
+            this.name = name;
+            this.required = required;
+        }
+
+        /**
+         * Record the outcome unless the subtask was already given up on.
+         */
+        private synchronized boolean complete(Object result, Throwable failure) {
+            if (status != null) {
+                return false;
+            }
+            value = result;
+            error = failure;
+            status = failure == null ? Status.SUCCESS : Status.FAILED;
+            endNanos = System.nanoTime();
+            return true;
+        }
+
+        private synchronized void cancel(Status reason, long now) {
+            if (status == null) {
+                status = reason;
+                endNanos = now;
+                future.cancel(true);
+            }
+        }
+
+        private synchronized Result result(long startNanos) {
+            Status current = status != null ? status : Status.CANCELLED;
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            String message = error != null ? error.getClass().getSimpleName() + ": " + error.getMessage() : null;
+            return new Result(name, required, current, current == Status.SUCCESS ? value : null, message,
+                    (end - startNanos) / 1_000_000);
+        }
+    }
+}
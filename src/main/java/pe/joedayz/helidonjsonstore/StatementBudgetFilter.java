@@ -0,0 +1,54 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Counts the JDBC statements each request runs on its own thread (see
+ * {@link StatementMonitor}) and returns the count in {@value #STATEMENT_COUNT}.
+ * Statements run on other threads, such as write-behind writers or scatter-gather
+ * subqueries, are not attributed to the request.
+ */
+@Provider
+@Priority(Priorities.USER)
+@ApplicationScoped
+public class StatementBudgetFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    static final String STATEMENT_COUNT = "X-Statement-Count";
+    private static final String STATEMENTS = StatementBudgetFilter.class.getName() + ".statements";
+
+    @Inject
+    private StatementMonitor statementMonitor;
+
+    @Inject
+    @ConfigProperty(name = "app.jdbc.monitor.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        if (!enabled) {
+            return;
+        }
+        String path = request.getUriInfo().getPath();
+        request.setProperty(STATEMENTS, statementMonitor.begin(
+                request.getMethod() + (path.startsWith("/") ? " " : " /") + path));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (!(request.getProperty(STATEMENTS) instanceof StatementMonitor.RequestStatements statements)) {
+            return;
+        }
+        request.setProperty(STATEMENTS, null);
+        statementMonitor.end(statements);
+        response.getHeaders().add(STATEMENT_COUNT, statements.count());
+    }
+}
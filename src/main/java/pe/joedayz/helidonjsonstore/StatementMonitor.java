@@ -0,0 +1,246 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Statement-level monitoring of the persistence unit's JDBC traffic, replacing
+ * {@code hibernate.show_sql}. The persistence unit uses the {@value #DATA_SOURCE}
+ * data source produced here, which wraps {@code ds1} with {@link MonitoredJdbc}.
+ * <p>
+ * Every statement execution updates the {@code jdbc.statement} timer (tagged
+ * {@code kind=query|update|batch}). Statements slower than
+ * {@code app.jdbc.monitor.slow-threshold-ms} are logged with their SQL and the types of
+ * their bind parameters (never the values). Statements issued on a request thread are
+ * counted per request (see {@link StatementBudgetFilter}); a request that runs more than
+ * {@code request-budget} statements, or the same SQL more than {@code repeat-threshold}
+ * times (a likely N+1), is logged with its statement list. Log lines are formatted and
+ * written by a background thread; when its queue is full they are dropped and counted.
+ */
+@ApplicationScoped
+public class StatementMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(StatementMonitor.class.getName());
+
+    public static final String DATA_SOURCE = "ds1-monitored";
+    private static final int MAX_LISTED_STATEMENTS = 32;
+    private static final int MAX_SQL_LENGTH = 2000;
+
+    public enum Kind {
+        QUERY, UPDATE, BATCH;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @ConfigProperty(name = "app.jdbc.monitor.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "app.jdbc.monitor.slow-threshold-ms", defaultValue = "200")
+    private long slowThresholdMillis;
+
+    @Inject
+    @ConfigProperty(name = "app.jdbc.monitor.request-budget", defaultValue = "5")
+    private int requestBudget;
+
+    @Inject
+    @ConfigProperty(name = "app.jdbc.monitor.repeat-threshold", defaultValue = "3")
+    private int repeatThreshold;
+
+    @Inject
+    @ConfigProperty(name = "app.jdbc.monitor.log-queue-capacity", defaultValue = "1024")
+    private int logQueueCapacity;
+
+    private final ThreadLocal<RequestStatements> current = new ThreadLocal<>();
+    private final Map<Kind, Timer> timers = new EnumMap<>(Kind.class);
+    private long slowThresholdNanos;
+    private Counter slowStatements;
+    private Counter budgetExceeded;
+    private Counter droppedLogs;
+    private Histogram statementsPerRequest;
+    private BlockingQueue<Supplier<String>> logQueue;
+    private Thread logWriter;
+
+    @PostConstruct
+    void init() {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        for (Kind kind : Kind.values()) {
+            timers.put(kind, metricRegistry.timer(Metadata.builder()
+                    .withName("jdbc.statement")
+                    .withDescription("JDBC statement execution time")
+                    .build(), new Tag("kind", kind.tag)));
+        }
+        slowStatements = metricRegistry.counter(Metadata.builder()
+                .withName("jdbc.statement.slow")
+                .withDescription("Statements slower than app.jdbc.monitor.slow-threshold-ms")
+                .build());
+        budgetExceeded = metricRegistry.counter(Metadata.builder()
+                .withName("jdbc.request.budget.exceeded")
+                .withDescription("Requests over the statement budget or repeating one statement")
+                .build());
+        droppedLogs = metricRegistry.counter(Metadata.builder()
+                .withName("jdbc.monitor.log.dropped")
+                .withDescription("Slow-statement and budget log lines dropped because the log queue was full")
+                .build());
+        statementsPerRequest = metricRegistry.histogram(Metadata.builder()
+                .withName("jdbc.statements.per-request")
+                .withDescription("JDBC statements executed on the request thread per HTTP request")
+                .build());
+        logQueue = new ArrayBlockingQueue<>(logQueueCapacity);
+        logWriter = Thread.ofPlatform().name("jdbc-monitor-log").daemon().start(this::writeLog);
+    }
+
+    @PreDestroy
+    void stop() {
+        logWriter.interrupt();
+    }
+
+    /**
+     * The data source behind the persistence unit: {@code ds1}, monitored unless
+     * {@code app.jdbc.monitor.enabled=false}.
+     */
+    @Produces
+    @ApplicationScoped
+    @Named(DATA_SOURCE)
+    DataSource monitoredDataSource(@Named("ds1") DataSource dataSource) {
+        return enabled ? MonitoredJdbc.wrap(dataSource, this) : dataSource;
+    }
+
+    /**
+     * Start counting the statements of the current thread on behalf of {@code request}.
+     */
+    public RequestStatements begin(String request) {
+        RequestStatements statements = new RequestStatements(request);
+        current.set(statements);
+        return statements;
+    }
+
+    /**
+     * Stop counting and check the request against the budget.
+     */
+    public void end(RequestStatements statements) {
+        if (current.get() == statements) {
+            current.remove();
+        }
+        int count = statements.count();
+        statementsPerRequest.update(count);
+        List<String> repeated = statements.repeated(repeatThreshold);
+        if (count > requestBudget || !repeated.isEmpty()) {
+            budgetExceeded.inc();
+            log(() -> statements.describe(requestBudget, repeated));
+        }
+    }
+
+    void executed(Kind kind, String sql, String[] parameterTypes, int batchSize, long nanos) {
+        timers.get(kind).update(Duration.ofNanos(nanos));
+        RequestStatements statements = current.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        if (nanos >= slowThresholdNanos) {
+            slowStatements.inc();
+            log(() -> "Slow " + kind.tag + " (" + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms"
+                    + (kind == Kind.BATCH ? ", " + batchSize + " rows" : "") + "): " + truncate(sql)
+                    + (parameterTypes.length > 0 ? " params " + String.join(", ", parameterTypes) : ""));
+        }
+    }
+
+    private void log(Supplier<String> message) {
+        if (!logQueue.offer(message)) {
+            droppedLogs.inc();
+        }
+    }
+
+    private void writeLog() {
+        try {
+            while (true) {
+                LOGGER.warning(logQueue.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String truncate(String sql) {
+        return sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH) + "..." : sql;
+    }
+
+    /**
+     * Statements executed for one request. Filled on the request thread, read when
+     * the response is written, possibly on another thread.
+     */
+    public static final class RequestStatements {
+        private final String request;
+        private final List<String> listed = new ArrayList<>();
+        private final Map<String, Integer> executions = new HashMap<>();
+        private int count;
+
+        private RequestStatements(String request) {
+            this.request = request;
+        }
+
+        public synchronized int count() {
+            return count;
+        }
+
+        private synchronized void add(String sql) {
+            count++;
+            if (listed.size() < MAX_LISTED_STATEMENTS) {
+                listed.add(sql);
+            }
+            executions.merge(sql, 1, Integer::sum);
+        }
+
+        private synchronized List<String> repeated(int threshold) {
+            return executions.entrySet().stream()
+                    .filter(e -> e.getValue() > threshold)
+                    .map(e -> e.getValue() + "x " + truncate(e.getKey()))
+                    .toList();
+        }
+
+        private synchronized String describe(int budget, List<String> repeated) {
+            StringBuilder message = new StringBuilder()
+                    .append(request).append(" ran ").append(count).append(" statements (budget ")
+                    .append(budget).append(')');
+            if (!repeated.isEmpty()) {
+                message.append(", repeated (possible N+1): ").append(repeated);
+            }
+            for (int i = 0; i < listed.size(); i++) {
+                message.append("\n  ").append(i + 1).append(". ").append(truncate(listed.get(i)));
+            }
+            if (count > listed.size()) {
+                message.append("\n  ... ").append(count - listed.size()).append(" more");
+            }
+            return message.toString();
+        }
+    }
+}
@@ -4,7 +4,13 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -19,6 +25,13 @@ public class VirtualThreadExpenseResource {
     
     @Inject
     private VirtualThreadExpenseService virtualThreadService;
+
+    @Inject
+    private BenchmarkHarness benchmarkHarness;
+
+    @Inject
+    @ConfigProperty(name = "app.scatter-gather.deadline-ms", defaultValue = "2000")
+    private long defaultDeadlineMs;
     
     /**
      * Process expenses concurrently using virtual threads.
@@ -32,16 +45,17 @@ public class VirtualThreadExpenseResource {
             List<VirtualThreadExpenseService.ExpenseInput> inputs = 
                 virtualThreadService.generateTestExpenses(count);
             
-            long startTime = System.currentTimeMillis();
-            List<Expense> results = virtualThreadService.processExpensesConcurrently(inputs);
-            long endTime = System.currentTimeMillis();
+            ConcurrentIngestionEngine.IngestionReport report =
+                virtualThreadService.processExpensesConcurrently(inputs);
             
             Map<String, Object> response = Map.of(
-                "processedCount", results.size(),
-                "processingTime", endTime - startTime,
+                "processedCount", report.inserted(),
+                "failedCount", report.failed(),
+                "processingTime", report.elapsedMillis(),
                 "threadType", "Virtual Threads",
-                "message", "Successfully processed " + results.size() + " expenses using virtual threads",
-                "results", results
+                "message", "Processed " + report.inserted() + " of " + report.requested()
+                    + " expenses using virtual threads",
+                "report", report
             );
             
             return Response.ok(response).build();
@@ -67,16 +81,18 @@ public class VirtualThreadExpenseResource {
             List<VirtualThreadExpenseService.ExpenseInput> inputs = 
                 virtualThreadService.generateTestExpenses(count);
             
-            long startTime = System.currentTimeMillis();
-            virtualThreadService.processExpensesInBatches(inputs, batchSize);
-            long endTime = System.currentTimeMillis();
+            ConcurrentIngestionEngine.IngestionReport report =
+                virtualThreadService.processExpensesInBatches(inputs, batchSize);
             
             Map<String, Object> response = Map.of(
-                "processedCount", count,
+                "processedCount", report.inserted(),
+                "failedCount", report.failed(),
                 "batchSize", batchSize,
-                "processingTime", endTime - startTime,
+                "processingTime", report.elapsedMillis(),
                 "threadType", "Virtual Threads (Batch Mode)",
-                "message", "Successfully processed " + count + " expenses in batches of " + batchSize
+                "message", "Processed " + report.inserted() + " of " + report.requested()
+                    + " expenses in batches of " + batchSize,
+                "report", report
             );
             
             return Response.ok(response).build();
@@ -90,25 +106,56 @@ public class VirtualThreadExpenseResource {
     
     /**
      * Execute multiple database queries concurrently using virtual threads.
-     * This demonstrates how virtual threads can improve database performance.
+     * The subqueries share a deadline ({@code deadlineMs}); the response shows the
+     * latency of each one and which was on the critical path. Answers 504 when the
+     * required subquery ran out of time and 500 when it failed.
      */
     @GET
     @Path("/concurrent-queries")
-    public Response executeConcurrentQueries() {
+    public Response executeConcurrentQueries(@QueryParam("deadlineMs") Long deadlineMs) {
         try {
-            long startTime = System.currentTimeMillis();
-            Map<String, Object> results = virtualThreadService.executeConcurrentQueries();
-            long endTime = System.currentTimeMillis();
+            Duration deadline = Duration.ofMillis(deadlineMs != null && deadlineMs > 0 ? deadlineMs : defaultDeadlineMs);
+            ScatterGather.Outcome outcome = virtualThreadService.executeConcurrentQueries(deadline);
             
-            Map<String, Object> response = Map.of(
-                "queryTime", endTime - startTime,
-                "threadType", "Virtual Threads",
-                "message", "Successfully executed concurrent database queries",
-                "results", results
-            );
+            Map<String, Object> results = new LinkedHashMap<>();
+            Map<String, Object> subqueries = new LinkedHashMap<>();
+            outcome.results().forEach((name, result) -> {
+                if (result.status() == ScatterGather.Status.SUCCESS) {
+                    results.put(name, result.value());
+                }
+                Map<String, Object> timing = new LinkedHashMap<>();
+                timing.put("status", result.status());
+                timing.put("required", result.required());
+                timing.put("elapsedMillis", result.elapsedMillis());
+                if (result.error() != null) {
+                    timing.put("error", result.error());
+                }
+                subqueries.put(name, timing);
+            });
             
-            return Response.ok(response).build();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("queryTime", outcome.elapsedMillis());
+            response.put("deadlineMillis", deadline.toMillis());
+            response.put("criticalPath", outcome.criticalPath());
+            response.put("complete", outcome.complete());
+            response.put("threadType", "Virtual Threads");
+            response.put("subqueries", subqueries);
+            response.put("results", results);
             
+            if (outcome.complete()) {
+                return Response.ok(response).build();
+            }
+            return Response.status(outcome.deadlineExceeded()
+                    ? Response.Status.GATEWAY_TIMEOUT
+                    : Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(response)
+                .build();
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new ErrorResponse("Concurrent queries interrupted", e.getMessage()))
+                .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity(new ErrorResponse("Error executing concurrent queries", e.getMessage()))
@@ -117,25 +164,62 @@ public class VirtualThreadExpenseResource {
     }
     
     /**
-     * Performance benchmark comparing virtual threads vs traditional approach.
-     * This endpoint helps developers understand the performance benefits.
+     * Benchmark the persistence layer under chosen workloads and concurrency levels.
+     * Each configuration gets {@code warmup} unrecorded rounds and {@code trials}
+     * measured ones of {@code count} operations per worker, all inside rolled-back
+     * transactions, and reports per-trial throughput and a latency histogram.
      */
     @GET
     @Path("/benchmark")
     public Response benchmarkPerformance(
-            @QueryParam("count") @DefaultValue("100") int count) {
+            @QueryParam("count") @DefaultValue("100") int count,
+            @QueryParam("workload") List<String> workloads,
+            @QueryParam("concurrency") List<Integer> concurrency,
+            @QueryParam("warmup") @DefaultValue("2") int warmup,
+            @QueryParam("trials") @DefaultValue("5") int trials) {
+        List<BenchmarkHarness.Workload> selected;
         try {
-            Map<String, Object> benchmarkResults = virtualThreadService.benchmarkPerformance(count);
-            
-            Map<String, Object> response = Map.of(
-                "benchmarkType", "Virtual Threads vs Traditional",
-                "expenseCount", count,
-                "message", "Performance benchmark completed successfully",
-                "results", benchmarkResults
-            );
+            selected = workloads == null || workloads.isEmpty()
+                ? List.of(BenchmarkHarness.Workload.values())
+                : workloads.stream()
+                    .flatMap(value -> Arrays.stream(value.split(",")))
+                    .map(value -> BenchmarkHarness.Workload.valueOf(value.trim().toUpperCase(Locale.ROOT)))
+                    .toList();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(new ErrorResponse("Unknown workload",
+                    "Expected one of " + Arrays.toString(BenchmarkHarness.Workload.values())))
+                .build();
+        }
+        List<Integer> levels = concurrency == null || concurrency.isEmpty()
+            ? List.of(1, Math.min(4, benchmarkHarness.maxConcurrency()))
+            : concurrency;
+        if (count < 1 || warmup < 0 || trials < 1) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(new ErrorResponse("Invalid benchmark parameters", "count and trials must be positive"))
+                .build();
+        }
+        
+        try {
+            long startTime = System.currentTimeMillis();
+            List<BenchmarkHarness.Result> results =
+                benchmarkHarness.run(selected, levels.stream().distinct().toList(), warmup, trials, count);
             
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("benchmarkType", "Sandboxed persistence workloads");
+            response.put("totalTime", System.currentTimeMillis() - startTime);
+            response.put("results", results.stream().map(BenchmarkHarness.Result::toMap).toList());
             return Response.ok(response).build();
             
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(new ErrorResponse("Invalid benchmark parameters", e.getMessage()))
+                .build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new ErrorResponse("Benchmark interrupted", e.getMessage()))
+                .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity(new ErrorResponse("Error running performance benchmark", e.getMessage()))
@@ -0,0 +1,48 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.AddConfig;
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+@AddConfig(key = "app.admission.initial-limit", value = "1")
+@AddConfig(key = "app.admission.min-limit", value = "1")
+@AddConfig(key = "app.admission.max-limit", value = "1")
+@AddConfig(key = "app.admission.queue-capacity", value = "0")
+class AdmissionControlTest {
+
+    @Inject
+    private WebTarget webTarget;
+
+    @Inject
+    private AdmissionController admissionController;
+
+    @Test
+    void shedsWithRetryAfterWhenSaturated() throws InterruptedException {
+        // hold the only slot
+        assertThat(admissionController.tryAcquire(), is(true));
+        try (Response response = webTarget.path("/expenses/statistics")
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(response.getStatus(), is(503));
+            assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER), is("1"));
+        } finally {
+            admissionController.release(0, false);
+        }
+
+        try (Response response = webTarget.path("/expenses/statistics")
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(response.getStatus(), is(200));
+        }
+        assertThat(admissionController.inFlight(), is(0L));
+    }
+}
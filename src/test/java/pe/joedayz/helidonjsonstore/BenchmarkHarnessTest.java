@@ -0,0 +1,49 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+class BenchmarkHarnessTest {
+
+    @Inject
+    private BenchmarkHarness benchmarkHarness;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Test
+    void insertTrialsAreRolledBack() throws InterruptedException {
+        long before = oracleJsonService.getStatistics().getTotalCount();
+
+        List<BenchmarkHarness.Result> results = benchmarkHarness.run(
+                List.of(BenchmarkHarness.Workload.INSERT), List.of(1, 2), 1, 2, 20);
+
+        assertThat(results, hasSize(2));
+        BenchmarkHarness.Result concurrent = results.get(1);
+        assertThat(concurrent.concurrency(), is(2));
+        assertThat(concurrent.throughput(), hasSize(2));
+        // two trials of two workers doing 20 inserts each
+        assertThat(concurrent.latencyMicros().count(), is(80L));
+        assertThat(concurrent.latencyMicros().p99(), greaterThanOrEqualTo(concurrent.latencyMicros().p50()));
+        assertThat(oracleJsonService.getStatistics().getTotalCount(), is(before));
+    }
+
+    @Test
+    void histogramPercentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        assertThat((double) histogram.valueAt(50), closeTo(50_000_000, 50_000_000 * 0.016));
+        assertThat((double) histogram.valueAt(99), closeTo(99_000_000, 99_000_000 * 0.016));
+        assertThat(histogram.max(), is(100_000_000L));
+        assertThat(histogram.count(), is(100_000L));
+    }
+}
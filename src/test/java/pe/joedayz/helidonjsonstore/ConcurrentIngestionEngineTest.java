@@ -0,0 +1,49 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+class ConcurrentIngestionEngineTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    @Inject
+    private ConcurrentIngestionEngine ingestionEngine;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Test
+    void failedBatchIsReportedAndOthersCommit() {
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 3 * BATCH_SIZE; i++) {
+            Expense expense = Expense.of(i, "CARD", "ENGINE", "Row " + i);
+            expenses.add(expense);
+        }
+        // the second batch repeats an id and must roll back as a whole
+        expenses.get(BATCH_SIZE + 1).setId(expenses.get(BATCH_SIZE).getId());
+
+        ConcurrentIngestionEngine.IngestionReport report = ingestionEngine.ingest(expenses, BATCH_SIZE);
+
+        assertThat(report.batches(), is(3));
+        assertThat(report.inserted(), is(2 * BATCH_SIZE));
+        assertThat(report.failures(), hasSize(1));
+        assertThat(report.failures().get(0).index(), is(1));
+        assertThat(oracleJsonService.findById(expenses.get(0).getId()).isPresent(), is(true));
+        assertThat(oracleJsonService.findById(expenses.get(BATCH_SIZE + 2).getId()).isPresent(), is(false));
+    }
+
+    @Test
+    void partitionKeepsOrderAndRemainder() {
+        List<List<Integer>> parts = ConcurrentIngestionEngine.partition(List.of(1, 2, 3, 4, 5), 2);
+        assertThat(parts, contains(List.of(1, 2), List.of(3, 4), List.of(5)));
+    }
+}
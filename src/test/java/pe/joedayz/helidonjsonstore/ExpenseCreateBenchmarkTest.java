@@ -0,0 +1,70 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.AddBean;
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares the merge-based save() with the insert-only create() against H2.
+ * Both paths receive expenses with a client-assigned id, which is what
+ * POST /expenses sees in practice.
+ */
+@HelidonTest
+@AddBean(HibernateStatistics.class)
+class ExpenseCreateBenchmarkTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpenseCreateBenchmarkTest.class.getName());
+    private static final int ROWS = 200;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Inject
+    private HibernateStatistics hibernateStatistics;
+
+    @Test
+    void createHalvesRoundTripsComparedToMerge() {
+        // warm up both paths so the comparison is not dominated by class loading and JIT
+        run("warmup-merge", oracleJsonService::save);
+        run("warmup-create", oracleJsonService::create);
+
+        long mergeStatements = run("merge", oracleJsonService::save);
+        long createStatements = run("create", oracleJsonService::create);
+
+        assertThat(mergeStatements, is(greaterThanOrEqualTo(2L * ROWS)));
+        assertThat(createStatements, is((long) ROWS));
+    }
+
+    @Test
+    void createRejectsDuplicateId() {
+        Expense expense = Expense.of(5.0, "CASH", "FOOD", "Coffee");
+        oracleJsonService.create(expense);
+
+        Expense duplicate = new Expense(expense.getId(), 6.0, "CASH", "FOOD", expense.getCreatedAt(), "Coffee again");
+        DuplicateExpenseException e = assertThrows(DuplicateExpenseException.class,
+                () -> oracleJsonService.create(duplicate));
+        assertThat(e.getId(), is(expense.getId()));
+    }
+
+    private long run(String label, UnaryOperator<Expense> operation) {
+        Statistics statistics = hibernateStatistics.reset();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            operation.apply(Expense.of(i, "CARD", "BENCH", label + " " + i));
+        }
+        long elapsedMicros = (System.nanoTime() - start) / 1_000;
+        long statements = statistics.getPrepareStatementCount();
+        LOGGER.info(() -> String.format("%-14s %d rows, %d statements (%.2f per row), %d us/row",
+                label, ROWS, statements, (double) statements / ROWS, elapsedMicros / ROWS));
+        return statements;
+    }
+}
@@ -0,0 +1,97 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.AddConfig;
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+@AddConfig(key = "app.document-store.enabled", value = "true")
+class ExpenseDocumentStoreTest {
+
+    @Inject
+    private WebTarget webTarget;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Test
+    void documentsFollowWritesAndAreServedAsStored() {
+        String category = "DOCUMENTS-" + System.nanoTime();
+        Expense expense = Expense.of(18.00, "CARD", category, "Museum");
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(Expense.of(6.00, "CASH", category, "Snack"), MediaType.APPLICATION_JSON));
+
+        webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.entity(Expense.of(21.00, "CARD", category, "Museum and audio guide"),
+                        MediaType.APPLICATION_JSON));
+
+        Map<?, ?> document = webTarget.path("/expenses/" + expense.getId() + "/document")
+                .request(MediaType.APPLICATION_JSON)
+                .get(Map.class);
+        assertThat(document.get("description"), is("Museum and audio guide"));
+        assertThat(((Number) document.get("version")).longValue(), is(1L));
+
+        Expense[] byCategory = webTarget.path("/expenses/documents")
+                .queryParam("category", category)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(byCategory, arrayWithSize(2));
+
+        Expense[] byBoth = webTarget.path("/expenses/documents")
+                .queryParam("category", category)
+                .queryParam("method", "CASH")
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(byBoth, arrayWithSize(1));
+        assertThat(byBoth[0].getDescription(), is("Snack"));
+
+        webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .delete();
+        try (Response deleted = webTarget.path("/expenses/" + expense.getId() + "/document")
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(deleted.getStatus(), is(404));
+        }
+    }
+
+    @Test
+    void batchCreatesAreMirroredTogether() {
+        String category = "DOCUMENT-BATCH-" + System.nanoTime();
+        oracleJsonService.createAll(List.of(
+                Expense.of(1.00, "CARD", category, "First"),
+                Expense.of(2.00, "CASH", category, "Second"),
+                Expense.of(3.00, "CARD", category, "Third")));
+
+        Expense[] documents = webTarget.path("/expenses/documents")
+                .queryParam("category", category)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(documents, arrayWithSize(3));
+    }
+
+    @Test
+    void listingRequiresAFilter() {
+        try (Response response = webTarget.path("/expenses/documents")
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(response.getStatus(), is(400));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+class ExpenseJsonCodecTest {
+
+    @Inject
+    private WebTarget webTarget;
+
+    @Test
+    void writesSameDocumentAsJsonb() throws Exception {
+        Expense full = new Expense("a-1", 1234.5, "CARD", "FOOD",
+                LocalDateTime.of(2024, 3, 5, 7, 8, 9, 120_000_000), "Caf\u00e9 \"quoted\" \\ \t\n\u0001 \uD83D\uDE00");
+        full.setVersion(7);
+        Expense sparse = new Expense("a-2", 1e7, null, null, LocalDateTime.of(2024, 1, 1, 0, 0), null);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ExpenseJsonCodec.writeAll(List.of(full, sparse), output);
+
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            assertThat(output.toString(StandardCharsets.UTF_8), is(jsonb.toJson(List.of(full, sparse))));
+        }
+    }
+
+    @Test
+    void readsWhatJsonbWrites() throws Exception {
+        Expense expense = new Expense("b-1", 42.25, "CASH", "TRANSPORT",
+                LocalDateTime.of(2024, 6, 1, 12, 30, 0, 5), "Bus \u00fcber \"night\"");
+        expense.setVersion(3);
+        String json;
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            json = jsonb.toJson(expense);
+        }
+
+        Expense read = ExpenseJsonCodec.read(json.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(read.getId(), is("b-1"));
+        assertThat(read.getAmount(), is(42.25));
+        assertThat(read.getMethod(), is("CASH"));
+        assertThat(read.getCategory(), is("TRANSPORT"));
+        assertThat(read.getCreatedAt(), is(expense.getCreatedAt()));
+        assertThat(read.getDescription(), is(expense.getDescription()));
+        assertThat(read.getVersion(), is(3L));
+    }
+
+    @Test
+    void skipsUnknownPropertiesAndRejectsMalformedBodies() throws IOException {
+        Expense read = ExpenseJsonCodec.read(
+                "{\"extra\":{\"nested\":[1,\"}\"]},\"amount\":5,\"id\":\"c-1\"}".getBytes(StandardCharsets.UTF_8));
+        assertThat(read.getId(), is("c-1"));
+        assertThat(read.getAmount(), is(5.0));
+
+        try (Response response = webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity("{\"amount\":", MediaType.APPLICATION_JSON))) {
+            assertThat(response.getStatus(), is(400));
+        }
+    }
+
+    @Test
+    void listEndpointsUseTheCodec() {
+        Expense expense = Expense.of(11.0, "DEBIT", "CODEC-" + System.nanoTime(), "Codec list");
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON))
+                .close();
+
+        Expense[] expenses = webTarget.path("/expenses/category/" + expense.getCategory())
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+
+        assertThat(Arrays.stream(expenses).map(Expense::getId).toList(), contains(expense.getId()));
+    }
+}
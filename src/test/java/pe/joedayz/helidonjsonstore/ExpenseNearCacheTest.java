@@ -0,0 +1,47 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+class ExpenseNearCacheTest {
+
+    @Inject
+    private ExpenseNearCache nearCache;
+
+    @Test
+    void bulkLoadIsCached() {
+        Expense expense = Expense.of(5.00, "CARD", "CACHE", "Bulk");
+        nearCache.getAll(List.of(expense.getId()), missing -> Map.of(expense.getId(), expense));
+
+        AtomicInteger loads = new AtomicInteger();
+        assertThat(nearCache.get(expense.getId(), id -> {
+            loads.incrementAndGet();
+            return expense;
+        }).isPresent(), is(true));
+        assertThat(loads.get(), is(0));
+    }
+
+    @Test
+    void bulkLoadRacingWithInvalidationIsNotCached() {
+        Expense stale = Expense.of(5.00, "CARD", "CACHE", "Before update");
+        Map<String, Expense> found = nearCache.getAll(List.of(stale.getId()), missing -> {
+            // a write to the same id commits while the rows are being read
+            nearCache.invalidate(stale.getId());
+            return Map.of(stale.getId(), stale);
+        });
+        assertThat(found.get(stale.getId()).getDescription(), is("Before update"));
+
+        Expense fresh = Expense.of(6.00, "CARD", "CACHE", "After update");
+        fresh.setId(stale.getId());
+        assertThat(nearCache.get(stale.getId(), id -> fresh).orElseThrow().getDescription(), is("After update"));
+    }
+}
@@ -7,6 +7,9 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
@@ -81,4 +84,473 @@ class ExpenseResourceTest {
         Expense[] expenses = response.readEntity(Expense[].class);
         assertThat(expenses, is(notNullValue()));
     }
+
+    @Test
+    void testKeysetPaginationByCategory() {
+        String category = "PAGED-" + System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            Expense expense = Expense.of(10 + i, "CASH", category, "Paged expense " + i);
+            webTarget.path("/expenses")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+        }
+
+        Response firstPage = webTarget.path("/expenses/category/" + category)
+                .queryParam("limit", 2)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        assertThat(firstPage.getStatus(), is(200));
+        assertThat(firstPage.readEntity(Expense[].class), arrayWithSize(2));
+        String cursor = firstPage.getHeaderString(ExpenseResource.NEXT_CURSOR_HEADER);
+        assertThat(cursor, is(notNullValue()));
+
+        Response secondPage = webTarget.path("/expenses/category/" + category)
+                .queryParam("limit", 2)
+                .queryParam("cursor", cursor)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        assertThat(secondPage.getStatus(), is(200));
+        assertThat(secondPage.readEntity(Expense[].class), arrayWithSize(1));
+        assertThat(secondPage.getHeaderString(ExpenseResource.NEXT_CURSOR_HEADER), is(nullValue()));
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        Response response = webTarget.path("/expenses")
+                .queryParam("cursor", "not-a-cursor")
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        assertThat(response.getStatus(), is(400));
+    }
+
+    @Test
+    void testExportStreamsNewlineDelimitedJson() {
+        Expense expense = Expense.of(7.25, "DEBIT", "TRANSPORT", "Bus ticket");
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+
+        Response response = webTarget.path("/expenses/export")
+                .request(ExpenseExporter.APPLICATION_NDJSON)
+                .get();
+
+        assertThat(response.getStatus(), is(200));
+        String body = response.readEntity(String.class);
+        assertThat(body, containsString(expense.getId()));
+        for (String line : body.split("\n")) {
+            assertThat(line, startsWith("{"));
+        }
+    }
+
+    @Test
+    void testCreateDuplicateIdReturnsConflict() {
+        Expense expense = Expense.of(12.00, "CARD", "SHOPPING", "Book");
+
+        Response first = webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+        assertThat(first.getStatus(), is(201));
+
+        Response second = webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+        assertThat(second.getStatus(), is(409));
+    }
+
+    @Test
+    void testConditionalUpdateAndDelete() {
+        Expense expense = Expense.of(40.00, "CREDIT", "HEALTH", "Pharmacy");
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+
+        Response getResponse = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+        String etag = getResponse.getHeaderString("ETag");
+        assertThat(etag, is("\"0\""));
+
+        Expense changes = Expense.of(45.00, "CREDIT", "HEALTH", "Pharmacy and vitamins");
+        Response stale = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"7\"")
+                .put(Entity.entity(changes, MediaType.APPLICATION_JSON));
+        assertThat(stale.getStatus(), is(412));
+
+        Response updated = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .header("If-Match", etag)
+                .put(Entity.entity(changes, MediaType.APPLICATION_JSON));
+        assertThat(updated.getStatus(), is(204));
+        String newEtag = updated.getHeaderString("ETag");
+        assertThat(newEtag, is("\"1\""));
+
+        Response deleted = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .header("If-Match", newEtag)
+                .delete();
+        assertThat(deleted.getStatus(), is(204));
+
+        Response missing = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .delete();
+        assertThat(missing.getStatus(), is(404));
+    }
+
+    @Test
+    void testTotalsFollowWrites() {
+        String category = "TOTALS-" + System.nanoTime();
+        Expense expense = Expense.of(30.00, "CASH", category, "Taxi");
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+
+        assertThat(totalForCategory(category), is(30.00));
+
+        webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.entity(Expense.of(12.50, "CASH", category, "Taxi"), MediaType.APPLICATION_JSON));
+        assertThat(totalForCategory(category), is(12.50));
+
+        webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .delete();
+        assertThat(totalForCategory(category), is(0.0));
+    }
+
+    @Test
+    void testAnalyticsGroupsFollowWrites() {
+        String category = "ANALYTICS-" + System.nanoTime();
+        Expense cash = Expense.of(10.00, "CASH", category, "Coffee");
+        Expense card = Expense.of(25.00, "CARD", category, "Lunch");
+        Expense gone = Expense.of(99.00, "CARD", category, "Refunded");
+        for (Expense expense : List.of(cash, card, gone)) {
+            webTarget.path("/expenses")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+        }
+        webTarget.path("/expenses/" + card.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.entity(Expense.of(35.00, "CARD", category, "Lunch"), MediaType.APPLICATION_JSON));
+        webTarget.path("/expenses/" + gone.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .delete();
+
+        List<?> groups = (List<?>) webTarget.path("/expenses/analytics")
+                .queryParam("groupBy", "method")
+                .queryParam("category", category)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Map.class)
+                .get("groups");
+        assertThat(groups, hasSize(2));
+        Map<?, ?> byCard = (Map<?, ?>) groups.get(0);
+        assertThat(byCard.get("method"), is("CARD"));
+        assertThat(((Number) byCard.get("count")).longValue(), is(1L));
+        assertThat(((Number) byCard.get("sum")).doubleValue(), is(35.00));
+        Map<?, ?> byCash = (Map<?, ?>) groups.get(1);
+        assertThat(byCash.get("method"), is("CASH"));
+        assertThat(((Number) byCash.get("max")).doubleValue(), is(10.00));
+
+        try (Response invalid = webTarget.path("/expenses/analytics")
+                .queryParam("groupBy", "weekday")
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(invalid.getStatus(), is(400));
+        }
+    }
+
+    @Test
+    void testAnalyticsSurvivesManyDistinctCategories() {
+        String prefix = "MANY-" + System.nanoTime() + "-";
+        for (int i = 0; i < 300; i++) {
+            webTarget.path("/expenses")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(Expense.of(1.00, "CARD", prefix + i, "Distinct category"),
+                            MediaType.APPLICATION_JSON))
+                    .close();
+        }
+
+        try (Response response = webTarget.path("/expenses/analytics")
+                .queryParam("groupBy", "category")
+                .queryParam("category", prefix + 299)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(response.getStatus(), is(200));
+            List<?> groups = (List<?>) response.readEntity(Map.class).get("groups");
+            assertThat(groups, hasSize(1));
+            assertThat(((Map<?, ?>) groups.get(0)).get("category"), is(prefix + 299));
+        }
+    }
+
+    @Test
+    void testReadAfterUpdateIsNotServedStale() {
+        Expense expense = Expense.of(9.99, "CARD", "ENTERTAINMENT", "Movie");
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+        // first read populates the near cache
+        webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense.class);
+
+        webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.entity(Expense.of(19.99, "CARD", "ENTERTAINMENT", "Concert"), MediaType.APPLICATION_JSON));
+
+        Expense reread = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense.class);
+        assertThat(reread.getDescription(), is("Concert"));
+        assertThat(reread.getVersion(), is(1L));
+    }
+
+    @Test
+    void testSearchFindsUpdatedDescriptions() {
+        String word = "zq" + System.nanoTime();
+        Expense expense = Expense.of(3.50, "CASH", "FOOD", "Snack " + word.toUpperCase());
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+
+        Expense[] found = webTarget.path("/expenses/search")
+                .queryParam("q", word)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(found, arrayWithSize(1));
+        assertThat(found[0].getId(), is(expense.getId()));
+
+        webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.entity(Expense.of(3.50, "CASH", "FOOD", "Snack"), MediaType.APPLICATION_JSON));
+
+        found = webTarget.path("/expenses/search")
+                .queryParam("q", word)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(found, arrayWithSize(0));
+    }
+
+    @Test
+    void testAmountRangeWithOffsetAndLimit() {
+        double base = 1_000_000 + (System.nanoTime() % 1_000_000) * 10;
+        String[] ids = new String[3];
+        for (int i = 0; i < ids.length; i++) {
+            Expense expense = Expense.of(base + i + 1, "CARD", "RANGE", "Range " + i);
+            webTarget.path("/expenses")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+            ids[i] = expense.getId();
+        }
+
+        Expense[] first = amountRange(base, base + 5, 0, 2);
+        assertThat(first, arrayWithSize(2));
+        assertThat(first[0].getId(), is(ids[2]));
+        assertThat(first[1].getId(), is(ids[1]));
+        Expense[] second = amountRange(base, base + 5, 2, 2);
+        assertThat(second, arrayWithSize(1));
+        assertThat(second[0].getId(), is(ids[0]));
+
+        webTarget.path("/expenses/" + ids[2])
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.entity(Expense.of(1.00, "CARD", "RANGE", "Range 2"), MediaType.APPLICATION_JSON));
+        Expense[] moved = amountRange(base, base + 5, 0, 10);
+        assertThat(moved, arrayWithSize(2));
+        assertThat(moved[0].getId(), is(ids[1]));
+    }
+
+    @Test
+    void testComposableQueryMatchesWildcardsLiterally() {
+        String category = "QUERY-LIKE-" + System.nanoTime();
+        for (String description : new String[] {"Paid 50% upfront", "Paid 500 upfront", "a_b", "axb"}) {
+            webTarget.path("/expenses")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(Expense.of(1.00, "CARD", category, description), MediaType.APPLICATION_JSON));
+        }
+
+        Expense[] percent = webTarget.path("/expenses/query")
+                .queryParam("category", category)
+                .queryParam("q", "50%")
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(percent, arrayWithSize(1));
+        assertThat(percent[0].getDescription(), is("Paid 50% upfront"));
+
+        Expense[] underscore = webTarget.path("/expenses/query")
+                .queryParam("category", category)
+                .queryParam("q", "a_b")
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(underscore, arrayWithSize(1));
+        assertThat(underscore[0].getDescription(), is("a_b"));
+    }
+
+    @Test
+    void testAmountRangeReportsNextOffset() {
+        double base = 3_000_000 + (System.nanoTime() % 1_000_000) * 10;
+        for (int i = 0; i < 3; i++) {
+            webTarget.path("/expenses")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(Expense.of(base + i + 1, "CARD", "RANGE", "Range " + i),
+                            MediaType.APPLICATION_JSON));
+        }
+
+        try (Response first = webTarget.path("/expenses/amount-range")
+                .queryParam("min", base)
+                .queryParam("max", base + 5)
+                .queryParam("limit", 2)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(first.readEntity(Expense[].class), arrayWithSize(2));
+            assertThat(first.getHeaderString(ExpenseResource.NEXT_OFFSET_HEADER), is("2"));
+        }
+        try (Response last = webTarget.path("/expenses/amount-range")
+                .queryParam("min", base)
+                .queryParam("max", base + 5)
+                .queryParam("offset", 2)
+                .queryParam("limit", 2)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(last.readEntity(Expense[].class), arrayWithSize(1));
+            assertThat(last.getHeaderString(ExpenseResource.NEXT_OFFSET_HEADER), is(nullValue()));
+        }
+    }
+
+    @Test
+    void testLookupReturnsRequestOrderWithMisses() {
+        Expense first = Expense.of(4.00, "CASH", "FOOD", "Coffee");
+        Expense second = Expense.of(6.00, "CARD", "FOOD", "Sandwich");
+        for (Expense expense : new Expense[] {first, second}) {
+            webTarget.path("/expenses")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+        }
+        String unknown = "missing-" + System.nanoTime();
+
+        ExpenseLookupResult posted = webTarget.path("/expenses/lookup")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(new ExpenseLookupRequest(List.of(second.getId(), unknown, first.getId())),
+                        MediaType.APPLICATION_JSON), ExpenseLookupResult.class);
+        assertThat(posted.getExpenses(), hasSize(3));
+        assertThat(posted.getExpenses().get(0).getId(), is(second.getId()));
+        assertThat(posted.getExpenses().get(1), is(nullValue()));
+        assertThat(posted.getExpenses().get(2).getId(), is(first.getId()));
+        assertThat(posted.getMissing(), contains(unknown));
+
+        ExpenseLookupResult fetched = webTarget.path("/expenses")
+                .queryParam("ids", first.getId() + "," + second.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .get(ExpenseLookupResult.class);
+        assertThat(fetched.getExpenses(), hasSize(2));
+        assertThat(fetched.getExpenses().get(0).getId(), is(first.getId()));
+        assertThat(fetched.getMissing(), is(empty()));
+    }
+
+    @Test
+    void testFieldSelectionNarrowsListResponses() {
+        String category = "FIELDS-" + System.nanoTime();
+        Expense expense = Expense.of(15.00, "CARD", category, "Dashboard row");
+        webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON));
+
+        Map<?, ?>[] narrowed = webTarget.path("/expenses/category/" + category)
+                .queryParam("fields", "amount,category")
+                .request(MediaType.APPLICATION_JSON)
+                .get(Map[].class);
+        assertThat(narrowed, arrayWithSize(1));
+        assertThat(narrowed[0].keySet().stream().map(String::valueOf).toList(),
+                containsInAnyOrder("id", "createdAt", "amount", "category"));
+        assertThat(narrowed[0].get("id"), is(expense.getId()));
+
+        Expense[] full = webTarget.path("/expenses/category/" + category)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(full[0].getDescription(), is("Dashboard row"));
+        assertThat(full[0].getMethod(), is("CARD"));
+
+        try (Response invalid = webTarget.path("/expenses")
+                .queryParam("fields", "amount,password")
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(invalid.getStatus(), is(400));
+        }
+    }
+
+    @Test
+    void testComposableQueryCombinesFiltersAndPages() {
+        String category = "QUERY-" + System.nanoTime();
+        for (double amount : new double[] {10.00, 20.00, 30.00, 40.00}) {
+            webTarget.path("/expenses")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(Expense.of(amount, amount > 15 ? "CARD" : "CASH", category,
+                            "Query row " + amount), MediaType.APPLICATION_JSON));
+        }
+
+        try (Response first = webTarget.path("/expenses/query")
+                .queryParam("category", category)
+                .queryParam("method", "CARD")
+                .queryParam("minAmount", 15)
+                .queryParam("q", "query ROW")
+                .queryParam("sort", "amount-desc")
+                .queryParam("limit", 2)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(first.getStatus(), is(200));
+            Expense[] items = first.readEntity(Expense[].class);
+            assertThat(items, arrayWithSize(2));
+            assertThat(items[0].getAmount(), is(40.00));
+            assertThat(items[1].getAmount(), is(30.00));
+            assertThat(first.getHeaderString(ExpenseResource.NEXT_OFFSET_HEADER), is("2"));
+        }
+
+        Expense[] rest = webTarget.path("/expenses/query")
+                .queryParam("category", category)
+                .queryParam("method", "CARD")
+                .queryParam("minAmount", 15)
+                .queryParam("sort", "amount-desc")
+                .queryParam("offset", 2)
+                .queryParam("limit", 2)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+        assertThat(rest, arrayWithSize(1));
+        assertThat(rest[0].getAmount(), is(20.00));
+
+        try (Response oldest = webTarget.path("/expenses/query")
+                .queryParam("category", category)
+                .queryParam("sort", "oldest")
+                .queryParam("limit", 3)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(oldest.readEntity(Expense[].class), arrayWithSize(3));
+            assertThat(oldest.getHeaderString(ExpenseResource.NEXT_CURSOR_HEADER), notNullValue());
+        }
+
+        try (Response invalid = webTarget.path("/expenses/query")
+                .queryParam("minAmount", 50)
+                .queryParam("maxAmount", 10)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(invalid.getStatus(), is(400));
+        }
+    }
+
+    private Expense[] amountRange(double min, double max, int offset, int limit) {
+        return webTarget.path("/expenses/amount-range")
+                .queryParam("min", min)
+                .queryParam("max", max)
+                .queryParam("offset", offset)
+                .queryParam("limit", limit)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Expense[].class);
+    }
+
+    private double totalForCategory(String category) {
+        Map<?, ?> total = webTarget.path("/expenses/total/category/" + category)
+                .request(MediaType.APPLICATION_JSON)
+                .get(Map.class);
+        return ((Number) total.get("total")).doubleValue();
+    }
 }
@@ -0,0 +1,84 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+class ExpenseRollupsTest {
+
+    @Inject
+    private WebTarget webTarget;
+
+    @Inject
+    private ExpenseRollups rollups;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Test
+    void compactionMovesMinutesIntoHoursWithoutChangingTotals() {
+        String category = "ROLLUP-" + System.nanoTime();
+        Expense expense = oracleJsonService.create(Expense.of(12.50, "CARD", category, "Parking"));
+        oracleJsonService.create(Expense.of(7.50, "CARD", category, "Parking again"));
+
+        List<ExpenseRollups.Point> minutes = points(ExpenseRollups.Granularity.MINUTE, category);
+        assertThat(minutes.stream().mapToLong(ExpenseRollups.Point::count).sum(), is(2L));
+        assertThat(minutes.get(0).bucket(), is(expense.getCreatedAt().truncatedTo(ChronoUnit.MINUTES)));
+
+        rollups.compact(LocalDateTime.now().plusDays(2));
+
+        assertThat(points(ExpenseRollups.Granularity.MINUTE, category), empty());
+        List<ExpenseRollups.Point> hours = points(ExpenseRollups.Granularity.HOUR, category);
+        assertThat(hours.stream().mapToLong(ExpenseRollups.Point::count).sum(), is(2L));
+        assertThat(hours.stream().mapToDouble(ExpenseRollups.Point::sum).sum(), is(20.00));
+
+        // a delete after compaction is applied to the level now holding the row
+        oracleJsonService.deleteById(expense.getId());
+        List<ExpenseRollups.Point> days = points(ExpenseRollups.Granularity.DAY, category);
+        assertThat(days, hasSize(1));
+        assertThat(days.get(0).count(), is(1L));
+        assertThat(days.get(0).sum(), is(7.50));
+    }
+
+    @Test
+    void partialBucketsAreNotReported() {
+        String category = "ROLLUP-RANGE-" + System.nanoTime();
+        Expense expense = oracleJsonService.create(Expense.of(4.00, "CASH", category, "Coffee"));
+        LocalDateTime hour = expense.getCreatedAt().truncatedTo(ChronoUnit.HOURS);
+
+        // the hour bucket starts before "from", so none of its minutes may leak in
+        assertThat(rollups.query(ExpenseRollups.Granularity.HOUR, hour.plusMinutes(1), null, category, null)
+                .points(), empty());
+
+        List<ExpenseRollups.Point> whole = rollups.query(ExpenseRollups.Granularity.HOUR, hour,
+                hour.plusMinutes(1), category, null).points();
+        assertThat(whole, hasSize(1));
+        assertThat(whole.get(0).bucket(), is(hour));
+        assertThat(whole.get(0).count(), is(1L));
+    }
+
+    @Test
+    void rollupEndpointRejectsUnknownBucket() {
+        try (Response response = webTarget.path("/expenses/rollup")
+                .queryParam("bucket", "week")
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(response.getStatus(), is(400));
+        }
+    }
+
+    private List<ExpenseRollups.Point> points(ExpenseRollups.Granularity granularity, String category) {
+        return rollups.query(granularity, null, null, category, null).points();
+    }
+}
@@ -0,0 +1,69 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.AddConfig;
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+@AddConfig(key = "app.ingest.write-behind.enabled", value = "true")
+class ExpenseWriteBehindTest {
+
+    private static final int REQUESTS = 50;
+
+    @Inject
+    private WebTarget webTarget;
+
+    @Test
+    void burstIsCommittedAndReadable() throws Exception {
+        List<String> ids = new ArrayList<>();
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(10)) {
+            for (int i = 0; i < REQUESTS; i++) {
+                Expense expense = Expense.of(1.0 + i, "CARD", "INGEST", "Burst " + i);
+                ids.add(expense.getId());
+                statuses.add(executor.submit(() -> post(expense)));
+            }
+            for (Future<Integer> status : statuses) {
+                assertThat(status.get(), is(201));
+            }
+        }
+
+        ExpenseLookupResult stored = webTarget.path("/expenses/lookup")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(new ExpenseLookupRequest(ids), MediaType.APPLICATION_JSON),
+                        ExpenseLookupResult.class);
+        assertThat(stored.getMissing(), is(empty()));
+    }
+
+    @Test
+    void duplicateInGroupOnlyFailsThatRequest() {
+        Expense expense = Expense.of(2.50, "CASH", "INGEST", "Original");
+        assertThat(post(expense), is(201));
+
+        Expense duplicate = Expense.of(3.50, "CASH", "INGEST", "Duplicate");
+        duplicate.setId(expense.getId());
+        assertThat(post(duplicate), is(409));
+    }
+
+    private int post(Expense expense) {
+        try (Response response = webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON))) {
+            return response.getStatus();
+        }
+    }
+}
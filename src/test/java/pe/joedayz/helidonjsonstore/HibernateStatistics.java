@@ -0,0 +1,26 @@
+package pe.joedayz.helidonjsonstore;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Test helper exposing Hibernate statistics, used to count JDBC round trips.
+ */
+@ApplicationScoped
+class HibernateStatistics {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    Statistics reset() {
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+}
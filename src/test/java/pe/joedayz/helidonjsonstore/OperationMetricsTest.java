@@ -0,0 +1,58 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+class OperationMetricsTest {
+
+    @Inject
+    private WebTarget webTarget;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private OracleJsonService oracleJsonService;
+
+    @Test
+    void recordsTimerAndRowsPerOperation() {
+        oracleJsonService.create(Expense.of(12.5, "CARD", "FOOD", "Metrics test"));
+        oracleJsonService.findPage(null, 1);
+
+        Tag operation = new Tag("operation", "OracleJsonService.findPage");
+        Timer timer = metricRegistry.timer("persistence.operation", operation);
+        Histogram rows = metricRegistry.histogram("persistence.operation.rows", operation);
+        long calls = timer.getCount();
+        long rowsSeen = rows.getSum();
+
+        oracleJsonService.findPage(null, 1);
+
+        assertThat(timer.getCount(), is(calls + 1));
+        assertThat(rows.getSum(), is(rowsSeen + 1));
+    }
+
+    @Test
+    void exposesPoolAndExecutorGauges() {
+        String metrics = webTarget.path("/metrics")
+                .queryParam("scope", "application")
+                .request(MediaType.TEXT_PLAIN)
+                .get(String.class);
+
+        assertThat(metrics, containsString("persistence_operation_seconds"));
+        assertThat(metrics, containsString("pool_connections_active"));
+        assertThat(metrics, containsString("pool_connections_pending"));
+        assertThat(metrics, containsString("ingest_batches_active"));
+        assertThat(metrics, containsString("scatter_gather_subtasks_active"));
+    }
+}
@@ -0,0 +1,66 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.AddConfig;
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+@AddConfig(key = "app.admin.token", value = PinningMonitorTest.TOKEN)
+class PinningMonitorTest {
+
+    static final String TOKEN = "pinning-test-token";
+
+    private static final Object LOCK = new Object();
+
+    @Inject
+    private WebTarget webTarget;
+
+    @Test
+    void reportsPinnedStackAsHotspot() throws InterruptedException {
+        Thread.ofVirtual().start(PinningMonitorTest::sleepWhilePinned).join();
+
+        // the stream delivers events about once a second
+        String hotspots = "";
+        for (int i = 0; i < 50 && !hotspots.contains("sleepWhilePinned"); i++) {
+            Thread.sleep(200);
+            hotspots = webTarget.path("/diagnostics/pinning")
+                    .request(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN)
+                    .get(String.class);
+        }
+        assertThat(hotspots, containsString("PinningMonitorTest.sleepWhilePinned"));
+    }
+
+    @Test
+    void refusesCallersWithoutToken() {
+        try (Response response = webTarget.path("/diagnostics/pinning")
+                .request(MediaType.APPLICATION_JSON)
+                .delete()) {
+            assertThat(response.getStatus(), is(403));
+        }
+        try (Response response = webTarget.path("/diagnostics/recording")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer wrong")
+                .post(null)) {
+            assertThat(response.getStatus(), is(403));
+        }
+    }
+
+    private static void sleepWhilePinned() {
+        synchronized (LOCK) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+class QueryPlanCheckTest {
+
+    @Inject
+    private QueryPlanCheck queryPlanCheck;
+
+    @Test
+    void serviceQueriesUseDeclaredIndexes() throws SQLException {
+        assertThat(queryPlanCheck.check(), is(empty()));
+    }
+}
@@ -0,0 +1,59 @@
+package pe.joedayz.helidonjsonstore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ScatterGatherTest {
+
+    private final ScatterGather scatterGather = new ScatterGather();
+
+    @AfterEach
+    void shutdown() {
+        scatterGather.close();
+    }
+
+    @Test
+    void requiredFailureCancelsSiblings() throws InterruptedException {
+        ScatterGather.Outcome outcome;
+        try (ScatterGather.Scope scope = scatterGather.open(Duration.ofSeconds(30))) {
+            scope.fork("slow", () -> {
+                Thread.sleep(30_000);
+                return "never";
+            });
+            scope.fork("broken", () -> {
+                throw new IllegalStateException("boom");
+            });
+            outcome = scope.join();
+        }
+
+        assertThat(outcome.complete(), is(false));
+        assertThat(outcome.deadlineExceeded(), is(false));
+        assertThat(outcome.elapsedMillis(), lessThan(10_000L));
+        assertThat(outcome.results().get("broken").status(), is(ScatterGather.Status.FAILED));
+        assertThat(outcome.results().get("slow").status(), is(ScatterGather.Status.CANCELLED));
+    }
+
+    @Test
+    void optionalTimeoutKeepsPartialResults() throws InterruptedException {
+        ScatterGather.Outcome outcome;
+        try (ScatterGather.Scope scope = scatterGather.open(Duration.ofMillis(200))) {
+            scope.fork("fast", () -> 42);
+            scope.forkOptional("hanging", () -> {
+                Thread.sleep(30_000);
+                return "never";
+            });
+            outcome = scope.join();
+        }
+
+        assertThat(outcome.complete(), is(true));
+        assertThat(outcome.deadlineExceeded(), is(true));
+        assertThat(outcome.<Integer>value("fast"), is(42));
+        assertThat(outcome.results().get("hanging").status(), is(ScatterGather.Status.TIMED_OUT));
+        assertThat(outcome.criticalPath(), is("hanging"));
+    }
+}
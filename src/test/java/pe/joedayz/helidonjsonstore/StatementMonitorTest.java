@@ -0,0 +1,65 @@
+package pe.joedayz.helidonjsonstore;
+
+import io.helidon.microprofile.testing.junit5.AddConfig;
+import io.helidon.microprofile.testing.junit5.HelidonTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@HelidonTest
+@AddConfig(key = "app.jdbc.monitor.request-budget", value = "1")
+class StatementMonitorTest {
+
+    @Inject
+    private WebTarget webTarget;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Test
+    void countsStatementsPerRequestAndFlagsBudget() {
+        Expense expense = Expense.of(8.00, "CARD", "FOOD", "Budget test");
+        try (Response created = webTarget.path("/expenses")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(expense, MediaType.APPLICATION_JSON))) {
+            assertThat(created.getStatus(), is(201));
+        }
+        Timer updates = metricRegistry.timer("jdbc.statement", new Tag("kind", "update"));
+        Counter exceeded = metricRegistry.counter("jdbc.request.budget.exceeded");
+        long updatesBefore = updates.getCount();
+        long exceededBefore = exceeded.getCount();
+
+        // not read yet: the before-image costs a SELECT, so SELECT + UPDATE is over the budget of 1
+        try (Response updated = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.entity(Expense.of(9.00, "CARD", "FOOD", "Budget test"), MediaType.APPLICATION_JSON))) {
+            assertThat(updated.getStatus(), is(204));
+            assertThat(Integer.parseInt(updated.getHeaderString(StatementBudgetFilter.STATEMENT_COUNT)), is(2));
+        }
+        assertThat(exceeded.getCount(), greaterThan(exceededBefore));
+
+        // once the row is in the near cache the PUT is the conditional UPDATE alone
+        try (Response read = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
+            assertThat(read.getStatus(), is(200));
+        }
+        try (Response updated = webTarget.path("/expenses/" + expense.getId())
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.entity(Expense.of(10.00, "CARD", "FOOD", "Budget test"), MediaType.APPLICATION_JSON))) {
+            assertThat(updated.getStatus(), is(204));
+            assertThat(Integer.parseInt(updated.getHeaderString(StatementBudgetFilter.STATEMENT_COUNT)), is(1));
+        }
+        assertThat(updates.getCount(), greaterThan(updatesBefore));
+    }
+}